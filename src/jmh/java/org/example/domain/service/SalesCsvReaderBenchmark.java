@@ -0,0 +1,101 @@
+package org.example.domain.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link SalesCsvReader} with the regex-based parser it replaced.
+ * Both sides hash the file and aggregate quantities per SKU, as the import does.
+ * <p>
+ * Run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SalesCsvReaderBenchmark {
+
+    private static final int DISTINCT_SKUS = 50_000;
+
+    @Param({"10000", "1000000", "10000000"})
+    public int rows;
+
+    private byte[] csv;
+
+    @Setup(Level.Trial)
+    public void createFile() {
+        SplittableRandom random = new SplittableRandom(42);
+        StringBuilder sb = new StringBuilder(rows * 16);
+        sb.append("sku,quantity\n");
+        for (int i = 0; i < rows; i++) {
+            sb.append("SKU-").append(random.nextInt(DISTINCT_SKUS))
+                    .append(random.nextBoolean() ? ',' : ';')
+                    .append(1 + random.nextInt(20))
+                    .append('\n');
+        }
+        csv = sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public Map<String, Long> tokenizer() {
+        Map<String, Long> qtyBySku = new HashMap<>();
+        SalesCsvReader.read(new ByteArrayInputStream(csv), sha256(), 0,
+                (line, sku, qty) -> qtyBySku.merge(sku, qty, Long::sum));
+        return qtyBySku;
+    }
+
+    @Benchmark
+    public Map<String, Long> legacyRegex() {
+        sha256().digest(csv);
+
+        Map<String, Long> qtyBySku = new HashMap<>();
+        String text = new String(csv, StandardCharsets.UTF_8);
+        for (String rawLine : text.split("\\R")) {
+            String line = rawLine == null ? "" : rawLine.trim();
+            if (line.isBlank()) continue;
+
+            String[] parts = line.split("[,;]");
+            if (parts.length < 2) continue;
+
+            String sku = parts[0].trim();
+            String qtyStr = parts[1].trim();
+
+            if (sku.equalsIgnoreCase("sku") || qtyStr.equalsIgnoreCase("quantity")) continue;
+            if (sku.isBlank()) continue;
+
+            long qty;
+            try {
+                qty = Long.parseLong(qtyStr);
+            } catch (NumberFormatException ex) {
+                continue;
+            }
+            if (qty <= 0) continue;
+
+            qtyBySku.merge(sku, qty, Long::sum);
+        }
+        return qtyBySku;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
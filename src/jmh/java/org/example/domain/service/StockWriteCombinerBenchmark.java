@@ -0,0 +1,146 @@
+package org.example.domain.service;
+
+import io.micronaut.transaction.TransactionCallback;
+import io.micronaut.transaction.TransactionOperations;
+import org.example.config.ProductCacheConfiguration;
+import org.example.config.WriteCombiningConfiguration;
+import org.example.domain.Location;
+import org.example.domain.event.StockChangedEvent.StockDelta;
+import org.example.persistence.entity.MovementEntity;
+import org.example.persistence.repo.MovementBulkWriter;
+import org.example.persistence.repo.MovementBulkWriter.WrittenMovements;
+import org.example.persistence.repo.MovementCommandOperations.MovementOutcome;
+import org.example.persistence.repo.StockBulkOperations;
+import org.example.persistence.repo.StockBulkOperations.LockedStock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Receipts into one stock row through {@link StockWriteCombiner}, with and
+ * without combining ({@code maxBatch} 1 gives every caller its own
+ * transaction), at 1, 8 and 64 concurrent callers. The database is simulated:
+ * a transaction holds one lock, standing in for the row lock, for
+ * {@code commitMicros}. Without combining the throughput stays near one
+ * transaction per {@code commitMicros} whatever the number of callers; with
+ * combining it should grow with them.
+ * <p>
+ * Run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class StockWriteCombinerBenchmark {
+
+    @Param({"1", "500"})
+    public int maxBatch;
+
+    @Param({"5000"})
+    public long commitMicros;
+
+    private StockWriteCombiner combiner;
+
+    @Setup(Level.Trial)
+    public void createCombiner() {
+        ReentrantLock rowLock = new ReentrantLock();
+        AtomicLong quantity = new AtomicLong();
+        AtomicLong nextMovementId = new AtomicLong();
+
+        StockBulkOperations stockBulkOperations = new StockBulkOperations(null) {
+            @Override
+            public List<LockedStock> lockForUpdate(long[] productIds) {
+                return List.of(new LockedStock(productIds[0], Location.BACKROOM, quantity.get()));
+            }
+
+            @Override
+            public void addQuantities(long[] productIds, Location[] locations, long[] deltas) {
+                quantity.addAndGet(deltas[0]);
+            }
+        };
+        MovementBulkWriter movementBulkWriter = new MovementBulkWriter(null) {
+            @Override
+            public WrittenMovements writeWithIds(List<MovementEntity> movements) {
+                long[] ids = new long[movements.size()];
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = nextMovementId.incrementAndGet();
+                }
+                return new WrittenMovements(ids, 1);
+            }
+        };
+        ProductLookupCache productLookupCache = new ProductLookupCache(null, new ProductCacheConfiguration()) {
+            @Override
+            public ProductInfo require(Long productId) {
+                return new ProductInfo(productId, true, 0);
+            }
+        };
+        StockEventPublisher stockEventPublisher = new StockEventPublisher(null, null, null, null) {
+            @Override
+            public void stockChanged(List<StockDelta> deltas, long transactionId) {
+            }
+        };
+        long commitNanos = TimeUnit.MICROSECONDS.toNanos(commitMicros);
+        @SuppressWarnings("unchecked")
+        TransactionOperations<Connection> transactionOperations = (TransactionOperations<Connection>)
+                Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{TransactionOperations.class},
+                        (proxy, method, args) -> {
+                            if (!method.getName().equals("executeWrite")) {
+                                throw new UnsupportedOperationException(method.getName());
+                            }
+                            rowLock.lock();
+                            try {
+                                LockSupport.parkNanos(commitNanos);
+                                return ((TransactionCallback<Connection, ?>) args[0]).apply(null);
+                            } finally {
+                                rowLock.unlock();
+                            }
+                        });
+
+        WriteCombiningConfiguration configuration = new WriteCombiningConfiguration();
+        configuration.setEnabled(true);
+        configuration.setWindow(Duration.ofMillis(1));
+        configuration.setMaxBatch(maxBatch);
+
+        // receipts only: they register no issue, so no transaction status is needed
+        combiner = new StockWriteCombiner(stockBulkOperations, movementBulkWriter,
+                new ReservedStock(transactionOperations), productLookupCache, stockEventPublisher,
+                transactionOperations, configuration);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public MovementOutcome oneCaller() {
+        return receipt();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public MovementOutcome eightCallers() {
+        return receipt();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public MovementOutcome sixtyFourCallers() {
+        return receipt();
+    }
+
+    private MovementOutcome receipt() {
+        return combiner.submit(1L, Location.BACKROOM, 1, 0, null);
+    }
+}
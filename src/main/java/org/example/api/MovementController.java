@@ -1,31 +1,97 @@
 package org.example.api;
 
 import io.micronaut.http.HttpResponse;
+import io.micronaut.http.HttpStatus;
 import io.micronaut.http.annotation.*;
+import io.micronaut.scheduling.TaskExecutors;
+import io.micronaut.scheduling.annotation.ExecuteOn;
 import io.micronaut.validation.Validated;
 import jakarta.validation.Valid;
+import org.example.api.dto.MovementDtos.BatchRequest;
 import org.example.api.dto.MovementDtos.IssueRequest;
+import org.example.api.dto.MovementDtos.MovementPage;
+import org.example.api.dto.MovementDtos.MovementResponse;
 import org.example.api.dto.MovementDtos.ReceiptRequest;
 import org.example.api.dto.MovementDtos.TransferRequest;
+import org.example.domain.BatchMode;
+import org.example.domain.Location;
+import org.example.domain.MovementType;
+import org.example.domain.dto.MovementBatchResult;
+import org.example.domain.dto.MovementCommand;
+import org.example.domain.service.MovementBatchService;
+import org.example.domain.service.MovementHistoryService;
 import org.example.domain.service.MovementService;
+import org.example.persistence.entity.MovementEntity;
+import org.example.persistence.repo.MovementSearchOperations.MovementFilter;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
 
 @Validated
 @Controller("/api/movements")
 public class MovementController {
 
     private final MovementService movementService;
+    private final MovementHistoryService movementHistoryService;
+    private final MovementBatchService movementBatchService;
 
-    public MovementController(MovementService movementService) {
+    public MovementController(MovementService movementService,
+                              MovementHistoryService movementHistoryService,
+                              MovementBatchService movementBatchService) {
         this.movementService = movementService;
+        this.movementHistoryService = movementHistoryService;
+        this.movementBatchService = movementBatchService;
+    }
+
+    /**
+     * Movements across products, newest first. All filters are optional;
+     * without {@code from} or {@code salesImportId} only the last 30 days
+     * (before {@code to}) are searched. Follow {@code nextCursor} for more.
+     *
+     * @param from inclusive, ISO-8601 instant
+     * @param to   exclusive, ISO-8601 instant
+     */
+    @Get
+    public MovementPage search(@QueryValue Optional<Instant> from,
+                               @QueryValue Optional<Instant> to,
+                               @QueryValue Optional<MovementType> type,
+                               @QueryValue Optional<Location> fromLocation,
+                               @QueryValue Optional<Location> toLocation,
+                               @QueryValue Optional<Long> salesImportId,
+                               @QueryValue Optional<Long> productId,
+                               @QueryValue Optional<String> cursor,
+                               @QueryValue Optional<Integer> limit) {
+        MovementFilter filter = new MovementFilter(
+                from.orElse(null),
+                to.orElse(null),
+                type.orElse(null),
+                fromLocation.orElse(null),
+                toLocation.orElse(null),
+                salesImportId.orElse(null),
+                productId.orElse(null)
+        );
+        MovementHistoryService.Page page = movementHistoryService.search(filter, cursor.orElse(null), limit.orElse(100));
+        return new MovementPage(
+                page.movements().stream().map(MovementController::toResponse).toList(),
+                page.nextCursor()
+        );
     }
 
+    /**
+     * Receipts and issues may wait for a combined write (see
+     * {@link org.example.domain.service.StockWriteCombiner}), so they run off
+     * the event loop.
+     */
     @Post("/receipt")
+    @ExecuteOn(TaskExecutors.BLOCKING)
     public HttpResponse<?> receipt(@Body @Valid ReceiptRequest req) {
         movementService.receipt(req.productId(), req.quantity(), req.toLocation(), req.note());
         return HttpResponse.noContent();
     }
 
     @Post("/issue")
+    @ExecuteOn(TaskExecutors.BLOCKING)
     public HttpResponse<?> issue(@Body @Valid IssueRequest req) {
         movementService.issue(req.productId(), req.quantity(), req.fromLocation(), req.note());
         return HttpResponse.noContent();
@@ -36,4 +102,38 @@ public class MovementController {
         movementService.transfer(req.productId(), req.quantity(), req.fromLocation(), req.toLocation(), req.note());
         return HttpResponse.noContent();
     }
+
+    /**
+     * Receipts, issues and transfers in one transaction, with a result per line.
+     * An ALL_OR_NOTHING batch with a rejected line applies nothing; a PARTIAL
+     * batch applies the lines that can be applied. 422 when nothing was applied.
+     */
+    @Post("/batch")
+    public HttpResponse<MovementBatchResult> batch(@Body @Valid BatchRequest req) {
+        List<MovementCommand> commands = req.lines().stream()
+                .map(l -> new MovementCommand(l.type(), l.productId(), l.quantity(),
+                        l.fromLocation(), l.toLocation(), l.note()))
+                .toList();
+        BatchMode mode = req.mode() == null ? BatchMode.ALL_OR_NOTHING : req.mode();
+
+        MovementBatchResult result = movementBatchService.apply(commands, mode);
+        if (result.applied() == 0 && result.rejected() > 0) {
+            return HttpResponse.<MovementBatchResult>status(HttpStatus.UNPROCESSABLE_ENTITY).body(result);
+        }
+        return HttpResponse.ok(result);
+    }
+
+    static MovementResponse toResponse(MovementEntity m) {
+        return new MovementResponse(
+                m.id(),
+                m.productId(),
+                m.type(),
+                m.fromLocation(),
+                m.toLocation(),
+                m.quantity(),
+                m.occurredAt(),
+                m.note(),
+                m.salesImportId()
+        );
+    }
 }
@@ -0,0 +1,74 @@
+package org.example.api;
+
+import io.micronaut.json.JsonMapper;
+import org.example.domain.service.MovementHistoryService;
+import org.example.persistence.entity.MovementEntity;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Function;
+
+/**
+ * Renders the movement history of a product as newline-delimited JSON, one
+ * keyset page at a time as the response is written, so only a page is ever
+ * held in memory.
+ */
+final class MovementNdjsonStream extends InputStream {
+
+    private static final int PAGE_SIZE = MovementHistoryService.MAX_PAGE_SIZE;
+
+    private final MovementHistoryService movementHistoryService;
+    private final JsonMapper jsonMapper;
+    private final Function<MovementEntity, ?> toResponse;
+    private final Long productId;
+
+    private String cursor;
+    private boolean lastPage;
+    private byte[] buffer = new byte[0];
+    private int position;
+
+    MovementNdjsonStream(MovementHistoryService movementHistoryService,
+                         JsonMapper jsonMapper,
+                         Function<MovementEntity, ?> toResponse,
+                         Long productId) {
+        this.movementHistoryService = movementHistoryService;
+        this.jsonMapper = jsonMapper;
+        this.toResponse = toResponse;
+        this.productId = productId;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) return -1;
+        return buffer[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) return 0;
+        if (!fill()) return -1;
+        int n = Math.min(len, buffer.length - position);
+        System.arraycopy(buffer, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    private boolean fill() throws IOException {
+        while (position == buffer.length) {
+            if (lastPage) return false;
+
+            MovementHistoryService.Page page = movementHistoryService.page(productId, cursor, PAGE_SIZE);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(page.movements().size() * 192);
+            for (MovementEntity m : page.movements()) {
+                out.write(jsonMapper.writeValueAsBytes(toResponse.apply(m)));
+                out.write('\n');
+            }
+            buffer = out.toByteArray();
+            position = 0;
+            cursor = page.nextCursor();
+            lastPage = cursor == null;
+        }
+        return true;
+    }
+}
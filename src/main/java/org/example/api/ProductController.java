@@ -1,12 +1,22 @@
 package org.example.api;
 
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micronaut.http.HttpHeaders;
 import io.micronaut.http.HttpResponse;
+import io.micronaut.http.MediaType;
 import io.micronaut.http.annotation.*;
+import io.micronaut.http.server.types.files.StreamedFile;
+import io.micronaut.json.JsonMapper;
 import io.micronaut.validation.Validated;
 import jakarta.validation.Valid;
+import org.example.api.dto.MovementDtos.MovementPage;
+import org.example.api.dto.ProductDtos.CacheStatsResponse;
 import org.example.api.dto.ProductDtos.CreateProductRequest;
+import org.example.api.dto.ProductDtos.ProductCacheStatsResponse;
 import org.example.api.dto.ProductDtos.ProductResponse;
 import org.example.api.dto.ProductDtos.UpdateProductRequest;
+import org.example.domain.service.MovementHistoryService;
+import org.example.domain.service.ProductLookupCache;
 import org.example.domain.service.ProductService;
 import org.example.persistence.entity.ProductEntity;
 import org.example.persistence.repo.ProductRepository;
@@ -19,13 +29,24 @@ import java.util.Optional;
 @Controller("/api/products")
 public class ProductController {
 
+    private static final MediaType NDJSON = new MediaType("application/x-ndjson");
+
     private final ProductService productService;
     private final ProductRepository productRepository;
+    private final MovementHistoryService movementHistoryService;
+    private final ProductLookupCache productLookupCache;
+    private final JsonMapper jsonMapper;
 
     public ProductController(ProductService productService,
-                             ProductRepository productRepository) {
+                             ProductRepository productRepository,
+                             MovementHistoryService movementHistoryService,
+                             ProductLookupCache productLookupCache,
+                             JsonMapper jsonMapper) {
         this.productService = productService;
         this.productRepository = productRepository;
+        this.movementHistoryService = movementHistoryService;
+        this.productLookupCache = productLookupCache;
+        this.jsonMapper = jsonMapper;
     }
 
     @Post
@@ -54,17 +75,73 @@ public class ProductController {
         return toResponse(updated);
     }
 
+    /**
+     * Active products by name or, with a {@code query}, the best {@code limit}
+     * matches on SKU or name (capped at {@value ProductService#MAX_SEARCH_RESULTS}).
+     */
     @Get
-    public List<ProductResponse> list(@QueryValue Optional<String> query) {
+    public List<ProductResponse> list(@QueryValue Optional<String> query,
+                                      @QueryValue Optional<Integer> limit) {
         List<ProductEntity> products = query
                 .map(String::trim)
                 .filter(q -> !q.isBlank())
-                .map(productRepository::search)
+                .map(q -> productService.search(q, limit.orElse(50)))
                 .orElseGet(productRepository::listActive);
 
         return products.stream().map(ProductController::toResponse).toList();
     }
 
+    /**
+     * Movements of the product, newest first. Follow {@code nextCursor} for older
+     * pages; {@code limit} is capped at {@value MovementHistoryService#MAX_PAGE_SIZE}.
+     */
+    @Get("/{id}/movements")
+    public MovementPage movements(@PathVariable Long id,
+                                  @QueryValue Optional<String> cursor,
+                                  @QueryValue Optional<Integer> limit) {
+        movementHistoryService.requireProduct(id);
+        MovementHistoryService.Page page = movementHistoryService.page(id, cursor.orElse(null), limit.orElse(100));
+        return new MovementPage(
+                page.movements().stream().map(MovementController::toResponse).toList(),
+                page.nextCursor()
+        );
+    }
+
+    /**
+     * The whole movement history as NDJSON, streamed page by page.
+     */
+    @Get("/{id}/movements/export")
+    public HttpResponse<StreamedFile> exportMovements(@PathVariable Long id) {
+        movementHistoryService.requireProduct(id);
+        MovementNdjsonStream stream = new MovementNdjsonStream(
+                movementHistoryService, jsonMapper, MovementController::toResponse, id);
+        return HttpResponse.ok(new StreamedFile(stream, NDJSON))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"product_" + id + "_movements.ndjson\"");
+    }
+
+    /**
+     * Hit/miss statistics of the SKU and product id lookup caches.
+     */
+    @Get("/cache/stats")
+    public ProductCacheStatsResponse cacheStats() {
+        ProductLookupCache.Stats stats = productLookupCache.stats();
+        return new ProductCacheStatsResponse(
+                toResponse(stats.sku(), stats.skuSize()),
+                toResponse(stats.product(), stats.productSize())
+        );
+    }
+
+    private static CacheStatsResponse toResponse(CacheStats stats, long size) {
+        return new CacheStatsResponse(
+                size,
+                stats.hitCount(),
+                stats.missCount(),
+                stats.hitRate(),
+                stats.evictionCount()
+        );
+    }
+
     private static ProductResponse toResponse(ProductEntity e) {
         return new ProductResponse(
                 e.id(),
@@ -1,58 +1,111 @@
 package org.example.api;
 
 import io.micronaut.http.annotation.*;
+import org.example.api.dto.ReportDtos.SalesTrendRow;
 import org.example.api.dto.ReportDtos.TopSalesRow;
+import org.example.domain.Location;
 import org.example.domain.MovementType;
-import org.example.persistence.entity.MovementEntity;
-import org.example.persistence.entity.ProductEntity;
+import org.example.domain.dto.SalesDailyBackfillResult;
+import org.example.domain.service.SalesDailyBackfill;
 import org.example.persistence.repo.MovementRepository;
-import org.example.persistence.repo.ProductRepository;
+import org.example.persistence.repo.MovementRepository.ProductQuantityTotal;
+import org.example.persistence.repo.SalesDailyOperations;
 
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
 
 @Controller("/api/reports")
 public class ReportsController {
 
+    private static final int MAX_LIMIT = 1000;
+    private static final int DEFAULT_TREND_DAYS = 30;
+
     private final MovementRepository movementRepository;
-    private final ProductRepository productRepository;
+    private final SalesDailyOperations salesDailyOperations;
+    private final SalesDailyBackfill salesDailyBackfill;
 
     public ReportsController(MovementRepository movementRepository,
-                             ProductRepository productRepository) {
+                             SalesDailyOperations salesDailyOperations,
+                             SalesDailyBackfill salesDailyBackfill) {
         this.movementRepository = movementRepository;
-        this.productRepository = productRepository;
+        this.salesDailyOperations = salesDailyOperations;
+        this.salesDailyBackfill = salesDailyBackfill;
     }
 
+    /**
+     * Sales over whole UTC days (bounds at midnight or absent) are read from the
+     * {@code sales_daily} rollup; other types or bounds aggregate the movements.
+     *
+     * @param from inclusive, ISO-8601 instant
+     * @param to   exclusive, ISO-8601 instant
+     * @param type defaults to {@code SALE_IMPORT}
+     */
     @Get("/top-sales")
-    public List<TopSalesRow> topSales(@QueryValue Optional<Integer> limit) {
-        int lim = limit.orElse(10);
-
-        Iterable<MovementEntity> all = movementRepository.findAll();
-        Map<Long, Long> soldByProduct = new HashMap<>();
+    public List<TopSalesRow> topSales(@QueryValue Optional<Integer> limit,
+                                      @QueryValue Optional<Instant> from,
+                                      @QueryValue Optional<Instant> to,
+                                      @QueryValue Optional<Location> location,
+                                      @QueryValue Optional<MovementType> type) {
+        int lim = Math.clamp(limit.orElse(10), 1, MAX_LIMIT);
+        MovementType movementType = type.orElse(MovementType.SALE_IMPORT);
+        String loc = location.map(Location::name).orElse(null);
 
-        for (MovementEntity m : all) {
-            if (m.type() != MovementType.SALE_IMPORT) continue;
-            if (m.productId() == null || m.quantity() == null) continue;
-            soldByProduct.merge(m.productId(), Long.valueOf(m.quantity()), Long::sum);
+        List<ProductQuantityTotal> totals;
+        if (movementType == MovementType.SALE_IMPORT && from.map(ReportsController::isUtcDay).orElse(true)
+                && to.map(ReportsController::isUtcDay).orElse(true)) {
+            totals = salesDailyOperations.topProducts(
+                    from.map(ReportsController::utcDay).orElse(null),
+                    to.map(ReportsController::utcDay).orElse(null),
+                    loc,
+                    lim);
+        } else {
+            totals = movementRepository.sumQuantityByProduct(
+                    movementType.name(), from.orElse(null), to.orElse(null), loc, lim);
         }
 
-        List<Map.Entry<Long, Long>> sorted = soldByProduct.entrySet().stream()
-                .sorted((a, b) -> Long.compare(b.getValue(), a.getValue()))
-                .limit(lim)
+        return totals.stream()
+                .map(r -> new TopSalesRow(r.productId(), r.sku(), r.name(), r.quantitySold()))
                 .toList();
+    }
 
-        List<TopSalesRow> result = new ArrayList<>();
-        for (Map.Entry<Long, Long> e : sorted) {
-            Long productId = e.getKey();
-            long qty = e.getValue();
-
-            ProductEntity p = productRepository.findById(productId).orElse(null);
-            result.add(new TopSalesRow(
-                    productId,
-                    p != null ? p.sku() : null,
-                    p != null ? p.name() : null,
-                    qty
-            ));
-        }
-        return result;
+    /**
+     * Quantity sold per UTC day, from the {@code sales_daily} rollup.
+     *
+     * @param from inclusive, defaults to 30 days before {@code to}
+     * @param to   exclusive, defaults to tomorrow
+     */
+    @Get("/sales-trend")
+    public List<SalesTrendRow> salesTrend(@QueryValue Optional<Long> productId,
+                                          @QueryValue Optional<LocalDate> from,
+                                          @QueryValue Optional<LocalDate> to,
+                                          @QueryValue Optional<Location> location) {
+        LocalDate end = to.orElse(LocalDate.now(ZoneOffset.UTC).plusDays(1));
+        LocalDate start = from.orElse(end.minusDays(DEFAULT_TREND_DAYS));
+
+        return salesDailyOperations.trend(start, end, productId.orElse(null), location.map(Location::name).orElse(null))
+                .stream()
+                .map(d -> new SalesTrendRow(d.day(), d.quantity()))
+                .toList();
+    }
+
+    /**
+     * Rebuilds the {@code sales_daily} rollup from the movements; run once after
+     * the rollup is introduced, and whenever movements are corrected by hand.
+     */
+    @Post("/sales-daily/backfill")
+    public SalesDailyBackfillResult backfillSalesDaily(@QueryValue Optional<LocalDate> from,
+                                                       @QueryValue Optional<LocalDate> to) {
+        return salesDailyBackfill.backfill(from.orElse(null), to.orElse(null));
+    }
+
+    private static boolean isUtcDay(Instant instant) {
+        return instant.truncatedTo(ChronoUnit.DAYS).equals(instant);
+    }
+
+    private static LocalDate utcDay(Instant instant) {
+        return LocalDate.ofInstant(instant, ZoneOffset.UTC);
     }
 }
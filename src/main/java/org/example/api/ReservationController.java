@@ -0,0 +1,67 @@
+package org.example.api;
+
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.annotation.*;
+import io.micronaut.scheduling.TaskExecutors;
+import io.micronaut.scheduling.annotation.ExecuteOn;
+import io.micronaut.validation.Validated;
+import jakarta.validation.Valid;
+import org.example.api.dto.MovementDtos.MovementOutcomeResponse;
+import org.example.api.dto.ReservationDtos.ReserveRequest;
+import org.example.domain.dto.ReservationView;
+import org.example.domain.service.ReservationService;
+import org.example.persistence.repo.MovementCommandOperations.MovementOutcome;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.UUID;
+
+@Validated
+@Controller("/api/reservations")
+public class ReservationController {
+
+    private final ReservationService reservationService;
+
+    public ReservationController(ReservationService reservationService) {
+        this.reservationService = reservationService;
+    }
+
+    /**
+     * Holds stock until the reservation is confirmed, released or expires.
+     * Nothing is written to the database until it is confirmed. Issues,
+     * transfers and movement batches cannot take held stock; sales imports and
+     * stock counts still do, and then confirming fails for lack of stock.
+     */
+    @Post
+    public HttpResponse<ReservationView> reserve(@Body @Valid ReserveRequest req) {
+        ReservationView reservation = reservationService.reserve(
+                req.productId(),
+                req.quantity(),
+                req.location(),
+                req.ttlSeconds() == null ? null : Duration.ofSeconds(req.ttlSeconds())
+        );
+        return HttpResponse.created(reservation)
+                .headers(h -> h.location(URI.create("/api/reservations/" + reservation.reservationId())));
+    }
+
+    @Get("/{id}")
+    public ReservationView get(@PathVariable UUID id) {
+        return reservationService.get(id);
+    }
+
+    /**
+     * Issues the reserved quantity from stock and ends the reservation.
+     */
+    @Post("/{id}/confirm")
+    @ExecuteOn(TaskExecutors.BLOCKING)
+    public MovementOutcomeResponse confirm(@PathVariable UUID id) {
+        MovementOutcome outcome = reservationService.confirm(id);
+        return new MovementOutcomeResponse(outcome.status().name(), outcome.movementId());
+    }
+
+    @Delete("/{id}")
+    public HttpResponse<?> release(@PathVariable UUID id) {
+        reservationService.release(id);
+        return HttpResponse.noContent();
+    }
+}
@@ -1,25 +1,72 @@
 package org.example.api;
 
+import io.micronaut.http.HttpResponse;
 import io.micronaut.http.MediaType;
 import io.micronaut.http.annotation.*;
 import io.micronaut.http.multipart.CompletedFileUpload;
-import org.example.domain.dto.SalesImportResult;
+import org.example.domain.dto.SalesImportStatusView;
+import org.example.domain.service.SalesArchiveImportService;
+import org.example.domain.service.SalesImportJobs;
 import org.example.domain.service.SalesImportService;
+import org.example.domain.service.SalesImportTracker;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.net.URI;
 
 @Controller("/api/sales-imports")
 public class SalesImportController {
 
     private final SalesImportService salesImportService;
+    private final SalesArchiveImportService salesArchiveImportService;
+    private final SalesImportJobs salesImportJobs;
+    private final SalesImportTracker salesImportTracker;
 
-    public SalesImportController(SalesImportService salesImportService) {
+    public SalesImportController(SalesImportService salesImportService,
+                                 SalesArchiveImportService salesArchiveImportService,
+                                 SalesImportJobs salesImportJobs,
+                                 SalesImportTracker salesImportTracker) {
         this.salesImportService = salesImportService;
+        this.salesArchiveImportService = salesArchiveImportService;
+        this.salesImportJobs = salesImportJobs;
+        this.salesImportTracker = salesImportTracker;
     }
 
+    /**
+     * With {@code async=true} the file is queued and 202 is returned with the
+     * import id; poll {@code GET /api/sales-imports/{id}} for progress.
+     * With {@code incremental=true} a file that extends an earlier import of the
+     * same name (e.g. a cumulative daily POS export) only applies its new rows.
+     * A ZIP (one CSV per entry) or gzip upload is detected by its signature and
+     * imported as one combined stock application; {@code incremental} does not
+     * apply to archives.
+     */
     @Post(consumes = MediaType.MULTIPART_FORM_DATA)
-    public SalesImportResult upload(@Part("file") CompletedFileUpload file) throws IOException {
-        byte[] bytes = file.getBytes();
-        return salesImportService.importCsv(bytes, file.getFilename());
+    public HttpResponse<?> upload(@Part("file") CompletedFileUpload file,
+                                  @QueryValue(defaultValue = "false") boolean async,
+                                  @QueryValue(defaultValue = "false") boolean incremental) throws IOException {
+        try (BufferedInputStream in = new BufferedInputStream(file.getInputStream())) {
+            boolean archive = SalesArchiveImportService.isArchive(in);
+            if (!async && archive) {
+                return HttpResponse.ok(salesArchiveImportService.importArchive(in, file.getFilename()));
+            }
+            if (!async) {
+                return HttpResponse.ok(salesImportService.importCsv(in, file.getFilename(), incremental));
+            }
+
+            SalesImportJobs.Submission submission = archive
+                    ? salesImportJobs.submitArchive(in, file.getFilename())
+                    : salesImportJobs.submit(in, file.getFilename(), incremental);
+            if (!submission.queued()) {
+                return HttpResponse.ok(submission.status());
+            }
+            return HttpResponse.accepted(URI.create("/api/sales-imports/" + submission.status().importId()))
+                    .body(submission.status());
+        }
+    }
+
+    @Get("/{id}")
+    public SalesImportStatusView status(@PathVariable Long id) {
+        return salesImportTracker.status(id);
     }
 }
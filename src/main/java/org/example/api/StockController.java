@@ -1,8 +1,14 @@
 package org.example.api;
 
+import io.micronaut.http.MediaType;
 import io.micronaut.http.annotation.*;
+import io.micronaut.http.sse.Event;
+import org.example.api.dto.StockDtos.StockPage;
 import org.example.domain.dto.StockView;
+import org.example.domain.service.StockChangeFeed;
 import org.example.domain.service.StockService;
+import org.example.persistence.repo.StockViewOperations.Sort;
+import org.reactivestreams.Publisher;
 
 import java.util.List;
 import java.util.Optional;
@@ -11,9 +17,12 @@ import java.util.Optional;
 public class StockController {
 
     private final StockService stockService;
+    private final StockChangeFeed stockChangeFeed;
 
-    public StockController(StockService stockService) {
+    public StockController(StockService stockService,
+                           StockChangeFeed stockChangeFeed) {
         this.stockService = stockService;
+        this.stockChangeFeed = stockChangeFeed;
     }
 
     @Get
@@ -23,8 +32,32 @@ public class StockController {
 
     @Get("/low")
     public List<StockView> low(@QueryValue Optional<String> query) {
-        return stockService.getStocksView(query).stream()
-                .filter(StockView::low)
-                .toList();
+        return stockService.getLowStocksView(query);
+    }
+
+    /**
+     * The stock view a page at a time, queried from the database. Sorted by
+     * {@code name} (default) or {@code sku}; {@code low=true} returns only
+     * products below their minimum. Follow {@code nextCursor} for more.
+     */
+    @Get("/page")
+    public StockPage page(@QueryValue Optional<String> query,
+                          @QueryValue(defaultValue = "false") boolean low,
+                          @QueryValue Optional<Sort> sort,
+                          @QueryValue Optional<String> cursor,
+                          @QueryValue Optional<Integer> limit) {
+        StockService.Page page = stockService.page(query, low, sort.orElse(Sort.NAME),
+                cursor.orElse(null), limit.orElse(100));
+        return new StockPage(page.items(), page.nextCursor());
+    }
+
+    /**
+     * Server-sent events: {@code stock} for a changed product, {@code low} when
+     * it also entered or left the low-stock list, and a final {@code resync}
+     * when this client fell too far behind.
+     */
+    @Get(value = "/events", produces = MediaType.TEXT_EVENT_STREAM)
+    public Publisher<Event<Object>> events() {
+        return stockChangeFeed.subscribe();
     }
 }
@@ -2,9 +2,16 @@ package org.example.api.dto;
 
 import io.micronaut.core.annotation.Introspected;
 import io.micronaut.serde.annotation.Serdeable;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
+import org.example.domain.BatchMode;
 import org.example.domain.Location;
+import org.example.domain.MovementType;
+
+import java.time.Instant;
+import java.util.List;
 
 public final class MovementDtos {
 
@@ -37,4 +44,62 @@ public final class MovementDtos {
             @NotNull Location toLocation,
             String note
     ) {}
+
+    /**
+     * @param movementId id of the movement appended to the ledger
+     */
+    @Serdeable
+    @Introspected
+    public record MovementOutcomeResponse(
+            String status,
+            Long movementId
+    ) {}
+
+    /**
+     * @param type RECEIPT, ISSUE or TRANSFER; the other fields as in the single requests
+     */
+    @Serdeable
+    @Introspected
+    public record BatchLine(
+            @NotNull MovementType type,
+            @NotNull Long productId,
+            @Positive long quantity,
+            Location fromLocation,
+            Location toLocation,
+            String note
+    ) {}
+
+    /**
+     * @param mode ALL_OR_NOTHING when omitted
+     */
+    @Serdeable
+    @Introspected
+    public record BatchRequest(
+            BatchMode mode,
+            @NotEmpty List<@Valid BatchLine> lines
+    ) {}
+
+    @Serdeable
+    @Introspected
+    public record MovementResponse(
+            Long id,
+            Long productId,
+            MovementType type,
+            Location fromLocation,
+            Location toLocation,
+            Integer quantity,
+            Instant occurredAt,
+            String note,
+            Long salesImportId
+    ) {}
+
+    /**
+     * @param nextCursor pass as {@code cursor} to fetch the next page; null on the last page
+     */
+    @Serdeable
+    @Introspected
+    public record MovementPage(
+            List<MovementResponse> items,
+            String nextCursor
+    ) {}
 }
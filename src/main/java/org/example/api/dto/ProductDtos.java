@@ -41,4 +41,24 @@ public final class ProductDtos {
             Integer minTotal,
             Boolean active
     ) {}
+
+    /**
+     * @param hitRate hits over requests, 1.0 when there were no requests
+     */
+    @Serdeable
+    @Introspected
+    public record CacheStatsResponse(
+            long size,
+            long hitCount,
+            long missCount,
+            double hitRate,
+            long evictionCount
+    ) {}
+
+    @Serdeable
+    @Introspected
+    public record ProductCacheStatsResponse(
+            CacheStatsResponse sku,
+            CacheStatsResponse product
+    ) {}
 }
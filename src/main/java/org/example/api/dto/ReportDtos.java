@@ -3,6 +3,8 @@ package org.example.api.dto;
 import io.micronaut.core.annotation.Introspected;
 import io.micronaut.serde.annotation.Serdeable;
 
+import java.time.LocalDate;
+
 public final class ReportDtos {
 
     private ReportDtos() {}
@@ -15,4 +17,11 @@ public final class ReportDtos {
             String name,
             long quantitySold
     ) {}
+
+    @Serdeable
+    @Introspected
+    public record SalesTrendRow(
+            LocalDate day,
+            long quantitySold
+    ) {}
 }
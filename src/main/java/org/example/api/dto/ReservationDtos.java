@@ -0,0 +1,25 @@
+package org.example.api.dto;
+
+import io.micronaut.core.annotation.Introspected;
+import io.micronaut.serde.annotation.Serdeable;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import org.example.domain.Location;
+
+public final class ReservationDtos {
+
+    private ReservationDtos() {}
+
+    /**
+     * @param location   SHOPFLOOR when omitted
+     * @param ttlSeconds the configured default when omitted
+     */
+    @Serdeable
+    @Introspected
+    public record ReserveRequest(
+            @NotNull Long productId,
+            @Positive long quantity,
+            Location location,
+            @Positive Long ttlSeconds
+    ) {}
+}
@@ -0,0 +1,22 @@
+package org.example.api.dto;
+
+import io.micronaut.core.annotation.Introspected;
+import io.micronaut.serde.annotation.Serdeable;
+import org.example.domain.dto.StockView;
+
+import java.util.List;
+
+public final class StockDtos {
+
+    private StockDtos() {}
+
+    /**
+     * @param nextCursor pass as {@code cursor} to fetch the next page; null on the last page
+     */
+    @Serdeable
+    @Introspected
+    public record StockPage(
+            List<StockView> items,
+            String nextCursor
+    ) {}
+}
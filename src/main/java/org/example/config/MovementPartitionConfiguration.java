@@ -0,0 +1,34 @@
+package org.example.config;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+
+@ConfigurationProperties("inventory.movement-partitions")
+public class MovementPartitionConfiguration {
+
+    /**
+     * Monthly partitions of {@code movement} kept created ahead of the current month.
+     */
+    private int monthsAhead = 3;
+
+    /**
+     * Months (besides the current one) that stay in {@code movement}; older months
+     * are moved to {@code movement_archive}. Zero keeps everything in {@code movement}.
+     */
+    private int retentionMonths = 0;
+
+    public int getMonthsAhead() {
+        return monthsAhead;
+    }
+
+    public void setMonthsAhead(int monthsAhead) {
+        this.monthsAhead = monthsAhead;
+    }
+
+    public int getRetentionMonths() {
+        return retentionMonths;
+    }
+
+    public void setRetentionMonths(int retentionMonths) {
+        this.retentionMonths = retentionMonths;
+    }
+}
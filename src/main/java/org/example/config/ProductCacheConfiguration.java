@@ -0,0 +1,37 @@
+package org.example.config;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties("inventory.product-cache")
+public class ProductCacheConfiguration {
+
+    /**
+     * Entries kept in each of the SKU and product id caches; the least
+     * valuable ones are evicted beyond that.
+     */
+    private long maximumSize = 100_000;
+
+    /**
+     * Upper bound on how long an entry is trusted. Entries are invalidated when
+     * a product changes; this only limits a lookup that raced with that change.
+     */
+    private Duration expireAfterWrite = Duration.ofMinutes(10);
+
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    public void setMaximumSize(long maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    public Duration getExpireAfterWrite() {
+        return expireAfterWrite;
+    }
+
+    public void setExpireAfterWrite(Duration expireAfterWrite) {
+        this.expireAfterWrite = expireAfterWrite;
+    }
+}
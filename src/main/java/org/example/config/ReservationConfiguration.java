@@ -0,0 +1,48 @@
+package org.example.config;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties("inventory.reservations")
+public class ReservationConfiguration {
+
+    /**
+     * How long a reservation holds stock when the request does not say.
+     */
+    private Duration defaultTtl = Duration.ofMinutes(15);
+
+    /**
+     * Longest TTL a request may ask for.
+     */
+    private Duration maxTtl = Duration.ofHours(2);
+
+    /**
+     * Tick of the expiry timer wheel; reservations expire up to one tick late.
+     */
+    private Duration timerTick = Duration.ofMillis(100);
+
+    public Duration getDefaultTtl() {
+        return defaultTtl;
+    }
+
+    public void setDefaultTtl(Duration defaultTtl) {
+        this.defaultTtl = defaultTtl;
+    }
+
+    public Duration getMaxTtl() {
+        return maxTtl;
+    }
+
+    public void setMaxTtl(Duration maxTtl) {
+        this.maxTtl = maxTtl;
+    }
+
+    public Duration getTimerTick() {
+        return timerTick;
+    }
+
+    public void setTimerTick(Duration timerTick) {
+        this.timerTick = timerTick;
+    }
+}
@@ -0,0 +1,117 @@
+package org.example.config;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+
+@ConfigurationProperties("inventory.sales-import")
+public class SalesImportConfiguration {
+
+    /**
+     * Number of distinct SKUs resolved and applied per set-based round trip.
+     */
+    private int batchSize = 1000;
+
+    /**
+     * When positive, imports commit every this many valid rows and record a
+     * checkpoint so a failed import resumes where it stopped. SKU counts in the
+     * result are then per chunk. Zero applies the whole file in one transaction.
+     */
+    private int chunkRows = 0;
+
+    /**
+     * Number of SKU hash partitions applied concurrently, each on its own
+     * connection and transaction; partitions commit independently. Keep this
+     * below the Hikari pool size. 1 is sequential.
+     */
+    private int parallelism = 1;
+
+    /**
+     * How many more times the partitions of a parallel chunk that failed are
+     * applied before the import fails, keeping the partitions that committed.
+     */
+    private int partitionRetries = 2;
+
+    /**
+     * Maximum number of asynchronous imports running at the same time.
+     */
+    private int workers = 2;
+
+    /**
+     * Accepted asynchronous imports that may wait for a free worker.
+     */
+    private int queueCapacity = 16;
+
+    /**
+     * Number of archive entries parsed concurrently.
+     */
+    private int archiveThreads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Number of day ranges of the {@code sales_daily} backfill rebuilt
+     * concurrently, each on its own connection.
+     */
+    private int rollupBackfillThreads = 4;
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getChunkRows() {
+        return chunkRows;
+    }
+
+    public void setChunkRows(int chunkRows) {
+        this.chunkRows = chunkRows;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public int getPartitionRetries() {
+        return partitionRetries;
+    }
+
+    public void setPartitionRetries(int partitionRetries) {
+        this.partitionRetries = partitionRetries;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public int getArchiveThreads() {
+        return archiveThreads;
+    }
+
+    public void setArchiveThreads(int archiveThreads) {
+        this.archiveThreads = archiveThreads;
+    }
+
+    public int getRollupBackfillThreads() {
+        return rollupBackfillThreads;
+    }
+
+    public void setRollupBackfillThreads(int rollupBackfillThreads) {
+        this.rollupBackfillThreads = rollupBackfillThreads;
+    }
+}
@@ -0,0 +1,37 @@
+package org.example.config;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties("inventory.stock-events")
+public class StockEventsConfiguration {
+
+    /**
+     * Changes of a product within one window are sent as a single event with
+     * its state at the end of the window.
+     */
+    private Duration coalesceWindow = Duration.ofMillis(250);
+
+    /**
+     * Events buffered for a subscriber that is not keeping up. When the buffer
+     * overflows the subscriber gets a {@code resync} event and its stream ends.
+     */
+    private int subscriberBuffer = 256;
+
+    public Duration getCoalesceWindow() {
+        return coalesceWindow;
+    }
+
+    public void setCoalesceWindow(Duration coalesceWindow) {
+        this.coalesceWindow = coalesceWindow;
+    }
+
+    public int getSubscriberBuffer() {
+        return subscriberBuffer;
+    }
+
+    public void setSubscriberBuffer(int subscriberBuffer) {
+        this.subscriberBuffer = subscriberBuffer;
+    }
+}
@@ -0,0 +1,52 @@
+package org.example.config;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties("inventory.write-combining")
+public class WriteCombiningConfiguration {
+
+    /**
+     * Combines concurrent receipts and issues of the same product and location
+     * into one stock update and one movement batch per transaction. Callers
+     * block until their batch commits, so only enable it where they run on
+     * virtual threads or the blocking pool, not on the event loop.
+     */
+    private boolean enabled = false;
+
+    /**
+     * How long the first caller waits for others to join before it writes.
+     * Zero combines only what queued up while the previous batch was writing.
+     */
+    private Duration window = Duration.ofMillis(1);
+
+    /**
+     * Maximum number of commands written in one transaction.
+     */
+    private int maxBatch = 500;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getWindow() {
+        return window;
+    }
+
+    public void setWindow(Duration window) {
+        this.window = window;
+    }
+
+    public int getMaxBatch() {
+        return maxBatch;
+    }
+
+    public void setMaxBatch(int maxBatch) {
+        this.maxBatch = maxBatch;
+    }
+}
@@ -0,0 +1,13 @@
+package org.example.domain;
+
+public enum BatchMode {
+    /**
+     * Nothing is applied unless every line can be.
+     */
+    ALL_OR_NOTHING,
+
+    /**
+     * Lines that can be applied are, the others are rejected.
+     */
+    PARTIAL
+}
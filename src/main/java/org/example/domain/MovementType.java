@@ -4,5 +4,6 @@ public enum MovementType {
     RECEIPT,
     ISSUE,
     TRANSFER,
-    SALE_IMPORT
+    SALE_IMPORT,
+    ADJUSTMENT
 }
@@ -0,0 +1,30 @@
+package org.example.domain.dto;
+
+import io.micronaut.serde.annotation.Serdeable;
+
+import java.util.List;
+
+/**
+ * @param lines one entry per command, in request order
+ */
+@Serdeable
+public record MovementBatchResult(
+        String mode,
+        int applied,
+        int rejected,
+        List<LineResult> lines
+) {
+
+    /**
+     * @param line   0-based index of the command
+     * @param status APPLIED, REJECTED, or NOT_APPLIED for a valid line of an
+     *               all-or-nothing batch that was rejected as a whole
+     * @param error  why the line was rejected, null otherwise
+     */
+    @Serdeable
+    public record LineResult(
+            int line,
+            String status,
+            String error
+    ) {}
+}
@@ -0,0 +1,17 @@
+package org.example.domain.dto;
+
+import org.example.domain.Location;
+import org.example.domain.MovementType;
+
+/**
+ * One receipt, issue or transfer of a movement batch. As with the single
+ * endpoints, a receipt defaults to BACKROOM and an issue to SHOPFLOOR.
+ */
+public record MovementCommand(
+        MovementType type,
+        Long productId,
+        long quantity,
+        Location fromLocation,
+        Location toLocation,
+        String note
+) {}
@@ -0,0 +1,15 @@
+package org.example.domain.dto;
+
+import io.micronaut.serde.annotation.Serdeable;
+import org.example.domain.Location;
+
+import java.time.Instant;
+
+@Serdeable
+public record ReservationView(
+        String reservationId,
+        Long productId,
+        Location location,
+        long quantity,
+        Instant expiresAt
+) {}
@@ -0,0 +1,17 @@
+package org.example.domain.dto;
+
+import io.micronaut.serde.annotation.Serdeable;
+
+import java.util.List;
+
+/**
+ * @param archive totals of the combined stock application
+ * @param entries one result per CSV in the archive; SKUs processed and quantities
+ *                applied are only known for the archive as a whole and are null
+ *                here, except for entries skipped as duplicates
+ */
+@Serdeable
+public record SalesArchiveImportResult(
+        SalesImportResult archive,
+        List<SalesImportResult> entries
+) {}
@@ -0,0 +1,18 @@
+package org.example.domain.dto;
+
+import io.micronaut.serde.annotation.Serdeable;
+
+import java.time.LocalDate;
+
+/**
+ * @param from first day rebuilt, null when there are no sales
+ * @param to   day after the last day rebuilt
+ */
+@Serdeable
+public record SalesDailyBackfillResult(
+        LocalDate from,
+        LocalDate to,
+        int ranges,
+        long rowsWritten,
+        long elapsedMillis
+) {}
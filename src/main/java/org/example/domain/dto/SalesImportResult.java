@@ -1,7 +1,15 @@
 package org.example.domain.dto;
 
+import io.micronaut.core.annotation.Nullable;
 import io.micronaut.serde.annotation.Serdeable;
 
+/**
+ * @param processedSkus        SKUs stock was taken for; null for an archive
+ *                             entry, whose rows are applied merged with the
+ *                             other entries
+ * @param totalQuantityApplied quantity taken from stock; null for an archive
+ *                             entry, see {@code processedSkus}
+ */
 @Serdeable
 public record SalesImportResult(
         Long importId,
@@ -9,8 +17,8 @@ public record SalesImportResult(
         int totalLines,
         int processedLines,
         int missingSkus,
-        int processedSkus,
+        @Nullable Integer processedSkus,
         long totalQuantityRequested,
-        long totalQuantityApplied,
+        @Nullable Long totalQuantityApplied,
         String fileSha256
 ) {}
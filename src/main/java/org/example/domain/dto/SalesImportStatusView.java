@@ -0,0 +1,30 @@
+package org.example.domain.dto;
+
+import io.micronaut.serde.annotation.Serdeable;
+
+import java.time.Instant;
+
+/**
+ * @param committedPartitions while a parallel chunk is partly committed (for a
+ *                            FAILED import: partitions whose stock changes are
+ *                            applied), how many of its {@code partitions} are;
+ *                            null otherwise. Re-uploading the file applies the rest.
+ */
+@Serdeable
+public record SalesImportStatusView(
+        Long importId,
+        String status,
+        String originalFilename,
+        int totalLines,
+        int processedLines,
+        Instant createdAt,
+        Instant startedAt,
+        Instant finishedAt,
+        long elapsedMillis,
+        Double linesPerSecond,
+        Long etaSeconds,
+        String fileSha256,
+        Long baseImportId,
+        Integer committedPartitions,
+        Integer partitions
+) {}
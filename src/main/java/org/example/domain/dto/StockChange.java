@@ -0,0 +1,17 @@
+package org.example.domain.dto;
+
+import io.micronaut.serde.annotation.Serdeable;
+
+/**
+ * @param lowChanged whether the product entered or left the low-stock list
+ */
+@Serdeable
+public record StockChange(
+        Long productId,
+        Integer backroomQty,
+        Integer shopfloorQty,
+        Integer totalQty,
+        Integer reservedQty,
+        boolean low,
+        boolean lowChanged
+) {}
@@ -2,6 +2,10 @@ package org.example.domain.dto;
 
 import io.micronaut.serde.annotation.Serdeable;
 
+/**
+ * @param reservedQty held by open reservations, at either location; not
+ *                    available to issues and not counted towards {@code minTotal}
+ */
 @Serdeable
 public record StockView(
         Long productId,
@@ -12,5 +16,6 @@ public record StockView(
         Integer backroomQty,
         Integer shopfloorQty,
         Integer totalQty,
+        Integer reservedQty,
         boolean low
 ) {}
@@ -0,0 +1,11 @@
+package org.example.domain.event;
+
+import io.micronaut.core.annotation.Nullable;
+import org.example.persistence.entity.ProductEntity;
+
+/**
+ * A product was created or updated by a committed transaction.
+ *
+ * @param previous the product before the change, null when it was created
+ */
+public record ProductChangedEvent(@Nullable ProductEntity previous, ProductEntity product) {}
@@ -0,0 +1,18 @@
+package org.example.domain.event;
+
+import org.example.domain.Location;
+
+import java.util.List;
+
+/**
+ * Stock quantities changed by a committed transaction.
+ *
+ * @param transactionId {@code txid_current()} of that transaction, 0 when unknown
+ */
+public record StockChangedEvent(List<StockDelta> deltas, long transactionId) {
+
+    /**
+     * @param delta signed change of the quantity at {@code location}
+     */
+    public record StockDelta(long productId, Location location, long delta) {}
+}
@@ -0,0 +1,227 @@
+package org.example.domain.service;
+
+import io.micronaut.transaction.annotation.Transactional;
+import jakarta.inject.Singleton;
+import org.example.domain.BatchMode;
+import org.example.domain.Location;
+import org.example.domain.MovementType;
+import org.example.domain.dto.MovementBatchResult;
+import org.example.domain.dto.MovementBatchResult.LineResult;
+import org.example.domain.dto.MovementCommand;
+import org.example.domain.event.StockChangedEvent.StockDelta;
+import org.example.domain.exception.NotFoundException;
+import org.example.persistence.entity.MovementEntity;
+import org.example.persistence.repo.MovementBulkWriter;
+import org.example.persistence.repo.StockBulkOperations;
+import org.example.persistence.repo.StockBulkOperations.LockedStock;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Applies many receipts, issues and transfers in one transaction: the stock
+ * rows of all products involved are locked once, in (product_id, location)
+ * order, the lines are checked against those quantities in memory in request
+ * order, and the net change per stock row and the movements are then written
+ * in one batch each. Stock held by reservations is not available to the lines.
+ */
+@Singleton
+public class MovementBatchService {
+
+    public static final int MAX_LINES = 5000;
+
+    private static final String APPLIED = "APPLIED";
+    private static final String REJECTED = "REJECTED";
+    private static final String NOT_APPLIED = "NOT_APPLIED";
+
+    private static final Comparator<StockKey> KEY_ORDER = Comparator
+            .comparingLong(StockKey::productId)
+            .thenComparing(StockKey::location);
+
+    private final ProductLookupCache productLookupCache;
+    private final StockBulkOperations stockBulkOperations;
+    private final MovementBulkWriter movementBulkWriter;
+    private final ReservedStock reservedStock;
+    private final StockEventPublisher stockEventPublisher;
+
+    public MovementBatchService(ProductLookupCache productLookupCache,
+                                StockBulkOperations stockBulkOperations,
+                                MovementBulkWriter movementBulkWriter,
+                                ReservedStock reservedStock,
+                                StockEventPublisher stockEventPublisher) {
+        this.productLookupCache = productLookupCache;
+        this.stockBulkOperations = stockBulkOperations;
+        this.movementBulkWriter = movementBulkWriter;
+        this.reservedStock = reservedStock;
+        this.stockEventPublisher = stockEventPublisher;
+    }
+
+    @Transactional
+    public MovementBatchResult apply(List<MovementCommand> commands, BatchMode mode) {
+        if (commands.isEmpty()) {
+            throw new IllegalArgumentException("A batch needs at least one line");
+        }
+        if (commands.size() > MAX_LINES) {
+            throw new IllegalArgumentException("A batch is limited to " + MAX_LINES + " lines");
+        }
+
+        int n = commands.size();
+        Line[] lines = new Line[n];
+        String[] errors = new String[n];
+        TreeSet<Long> productIds = new TreeSet<>();
+        for (int i = 0; i < n; i++) {
+            try {
+                lines[i] = validate(commands.get(i));
+                productIds.add(lines[i].productId());
+            } catch (IllegalArgumentException | NotFoundException ex) {
+                errors[i] = ex.getMessage();
+            }
+        }
+
+        Map<StockKey, Long> available = new HashMap<>();
+        for (LockedStock s : stockBulkOperations.lockForUpdate(
+                productIds.stream().mapToLong(Long::longValue).toArray())) {
+            available.put(new StockKey(s.productId(), s.location()), s.quantity());
+        }
+        Map<StockKey, Long> issuing = new TreeMap<>(KEY_ORDER);
+        for (Line line : lines) {
+            if (line != null && line.from() != null) {
+                issuing.merge(new StockKey(line.productId(), line.from()), line.quantity(), Long::sum);
+            }
+        }
+        issuing.forEach((key, qty) -> available.merge(
+                key, -reservedStock.beginIssue(key.productId(), key.location(), qty), Long::sum));
+
+        TreeMap<StockKey, Long> deltas = new TreeMap<>(KEY_ORDER);
+        for (int i = 0; i < n; i++) {
+            Line line = lines[i];
+            if (line == null) continue;
+
+            if (line.from() != null) {
+                StockKey from = new StockKey(line.productId(), line.from());
+                if (available.getOrDefault(from, 0L) < line.quantity()) {
+                    errors[i] = "Not enough quantity at " + line.from();
+                    lines[i] = null;
+                    continue;
+                }
+                available.merge(from, -line.quantity(), Long::sum);
+                deltas.merge(from, -line.quantity(), Long::sum);
+            }
+            if (line.to() != null) {
+                StockKey to = new StockKey(line.productId(), line.to());
+                available.merge(to, line.quantity(), Long::sum);
+                deltas.merge(to, line.quantity(), Long::sum);
+            }
+        }
+
+        int rejected = 0;
+        for (String error : errors) {
+            if (error != null) rejected++;
+        }
+        boolean applyAny = mode == BatchMode.PARTIAL || rejected == 0;
+
+        List<LineResult> results = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            String status = errors[i] != null ? REJECTED : applyAny ? APPLIED : NOT_APPLIED;
+            results.add(new LineResult(i, status, errors[i]));
+        }
+        if (!applyAny || rejected == n) {
+            return new MovementBatchResult(mode.name(), 0, rejected, results);
+        }
+
+        write(lines, deltas);
+        return new MovementBatchResult(mode.name(), n - rejected, rejected, results);
+    }
+
+    private void write(Line[] lines, TreeMap<StockKey, Long> deltas) {
+        deltas.values().removeIf(delta -> delta == 0);
+        long[] productIds = new long[deltas.size()];
+        Location[] locations = new Location[deltas.size()];
+        long[] quantities = new long[deltas.size()];
+        List<StockDelta> events = new ArrayList<>(deltas.size());
+        int k = 0;
+        for (Map.Entry<StockKey, Long> e : deltas.entrySet()) {
+            productIds[k] = e.getKey().productId();
+            locations[k] = e.getKey().location();
+            quantities[k] = e.getValue();
+            events.add(new StockDelta(productIds[k], locations[k], quantities[k]));
+            k++;
+        }
+        stockBulkOperations.addQuantities(productIds, locations, quantities);
+
+        Instant now = Instant.now();
+        List<MovementEntity> movements = new ArrayList<>(lines.length);
+        for (Line line : lines) {
+            if (line == null) continue;
+            movements.add(new MovementEntity(
+                    null,
+                    line.productId(),
+                    line.type(),
+                    line.from(),
+                    line.to(),
+                    (int) line.quantity(),
+                    now,
+                    line.note(),
+                    null
+            ));
+        }
+        movementBulkWriter.write(movements);
+
+        stockEventPublisher.stockChanged(events);
+    }
+
+    /**
+     * The same checks and defaults as {@link MovementService}.
+     */
+    private Line validate(MovementCommand c) {
+        if (c.type() == null) {
+            throw new IllegalArgumentException("Field 'type' is required");
+        }
+        if (c.productId() == null) {
+            throw new IllegalArgumentException("Field 'productId' is required");
+        }
+        if (c.quantity() <= 0) {
+            throw new IllegalArgumentException("Quantity must be > 0");
+        }
+        if (c.quantity() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Quantity exceeds Integer.MAX_VALUE");
+        }
+
+        Location from;
+        Location to;
+        switch (c.type()) {
+            case RECEIPT -> {
+                from = null;
+                to = c.toLocation() == null ? Location.BACKROOM : c.toLocation();
+            }
+            case ISSUE -> {
+                from = c.fromLocation() == null ? Location.SHOPFLOOR : c.fromLocation();
+                to = null;
+            }
+            case TRANSFER -> {
+                if (c.fromLocation() == null || c.toLocation() == null) {
+                    throw new IllegalArgumentException("Both 'from' and 'to' locations are required");
+                }
+                if (c.fromLocation() == c.toLocation()) {
+                    throw new IllegalArgumentException("'from' and 'to' must be different");
+                }
+                from = c.fromLocation();
+                to = c.toLocation();
+            }
+            default -> throw new IllegalArgumentException("Unsupported movement type: " + c.type());
+        }
+
+        long productId = productLookupCache.require(c.productId()).id();
+        return new Line(c.type(), productId, c.quantity(), from, to, c.note());
+    }
+
+    private record Line(MovementType type, long productId, long quantity, Location from, Location to, String note) {}
+
+    private record StockKey(long productId, Location location) {}
+}
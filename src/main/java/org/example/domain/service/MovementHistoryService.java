@@ -0,0 +1,125 @@
+package org.example.domain.service;
+
+import io.micronaut.core.annotation.Nullable;
+import jakarta.inject.Singleton;
+import org.example.domain.exception.NotFoundException;
+import org.example.persistence.entity.MovementEntity;
+import org.example.persistence.repo.MovementRepository;
+import org.example.persistence.repo.MovementSearchOperations;
+import org.example.persistence.repo.MovementSearchOperations.MovementFilter;
+import org.example.persistence.repo.ProductRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Reads movements newest first, page by page: the history of one product, or a
+ * filtered search across products. Pages continue from an opaque cursor (the
+ * {@code (occurred_at, id)} of the last movement returned), so every page is an
+ * index seek, however deep.
+ */
+@Singleton
+public class MovementHistoryService {
+
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    /**
+     * Search window when neither {@code from} nor a sales import is given, so a
+     * search never scans the whole ledger.
+     */
+    public static final Duration DEFAULT_SEARCH_WINDOW = Duration.ofDays(30);
+
+    private final MovementRepository movementRepository;
+    private final MovementSearchOperations movementSearchOperations;
+    private final ProductRepository productRepository;
+
+    public MovementHistoryService(MovementRepository movementRepository,
+                                  MovementSearchOperations movementSearchOperations,
+                                  ProductRepository productRepository) {
+        this.movementRepository = movementRepository;
+        this.movementSearchOperations = movementSearchOperations;
+        this.productRepository = productRepository;
+    }
+
+    public void requireProduct(Long productId) {
+        if (!productRepository.existsById(productId)) {
+            throw new NotFoundException("Product not found: id=" + productId);
+        }
+    }
+
+    /**
+     * @param cursor {@code nextCursor} of the previous page, null for the first page
+     */
+    public Page page(Long productId, @Nullable String cursor, int limit) {
+        int size = Math.clamp(limit, 1, MAX_PAGE_SIZE);
+
+        List<MovementEntity> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = movementRepository.findHistory(productId, size + 1);
+        } else {
+            Cursor after = Cursor.decode(cursor);
+            rows = movementRepository.findHistoryAfter(productId, after.occurredAt(), after.id(), size + 1);
+        }
+
+        return toPage(rows, size);
+    }
+
+    /**
+     * Without {@code from} and {@code salesImportId} the search covers the
+     * {@link #DEFAULT_SEARCH_WINDOW} before {@code to} (or now).
+     *
+     * @param cursor {@code nextCursor} of the previous page, null for the first page
+     */
+    public Page search(MovementFilter filter, @Nullable String cursor, int limit) {
+        int size = Math.clamp(limit, 1, MAX_PAGE_SIZE);
+
+        if (filter.from() == null && filter.salesImportId() == null) {
+            Instant to = filter.to() != null ? filter.to() : Instant.now();
+            filter = new MovementFilter(to.minus(DEFAULT_SEARCH_WINDOW), filter.to(), filter.type(),
+                    filter.fromLocation(), filter.toLocation(), filter.salesImportId(), filter.productId());
+        }
+
+        Cursor after = cursor == null || cursor.isBlank() ? null : Cursor.decode(cursor);
+        List<MovementEntity> rows = movementSearchOperations.search(filter,
+                after == null ? null : after.occurredAt(),
+                after == null ? null : after.id(),
+                size + 1);
+        return toPage(rows, size);
+    }
+
+    private static Page toPage(List<MovementEntity> rows, int size) {
+        if (rows.size() <= size) {
+            return new Page(rows, null);
+        }
+        List<MovementEntity> movements = rows.subList(0, size);
+        MovementEntity last = movements.get(size - 1);
+        return new Page(movements, new Cursor(last.occurredAt(), last.id()).encode());
+    }
+
+    /**
+     * @param nextCursor null on the last page
+     */
+    public record Page(List<MovementEntity> movements, @Nullable String nextCursor) {}
+
+    private record Cursor(Instant occurredAt, Long id) {
+
+        String encode() {
+            byte[] raw = (occurredAt + "|" + id).getBytes(StandardCharsets.UTF_8);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+        }
+
+        static Cursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int sep = raw.indexOf('|');
+                return new Cursor(Instant.parse(raw.substring(0, sep)), Long.parseLong(raw.substring(sep + 1)));
+            } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException ex) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor, ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package org.example.domain.service;
+
+import io.micronaut.scheduling.annotation.Scheduled;
+import io.micronaut.transaction.TransactionOperations;
+import jakarta.inject.Singleton;
+import org.example.config.MovementPartitionConfiguration;
+import org.example.persistence.repo.MovementPartitionOperations;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps the monthly partitions of {@code movement} ahead of time, so rows never
+ * land in the default partition, and moves months past the retention to
+ * {@code movement_archive}. Each partition change is its own transaction.
+ */
+@Singleton
+public class MovementPartitionMaintenance {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MovementPartitionMaintenance.class);
+
+    private final MovementPartitionOperations movementPartitionOperations;
+    private final MovementPartitionConfiguration configuration;
+    private final TransactionOperations<Connection> transactionOperations;
+
+    public MovementPartitionMaintenance(MovementPartitionOperations movementPartitionOperations,
+                                        MovementPartitionConfiguration configuration,
+                                        TransactionOperations<Connection> transactionOperations) {
+        this.movementPartitionOperations = movementPartitionOperations;
+        this.configuration = configuration;
+        this.transactionOperations = transactionOperations;
+    }
+
+    @Scheduled(initialDelay = "30s", fixedDelay = "${inventory.movement-partitions.check-interval:6h}")
+    void maintain() {
+        try {
+            createUpcoming();
+            archiveExpired();
+        } catch (RuntimeException ex) {
+            LOG.error("Movement partition maintenance failed", ex);
+        }
+    }
+
+    public void createUpcoming() {
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+        Set<YearMonth> existing = new HashSet<>(movementPartitionOperations.monthlyPartitions("movement"));
+
+        for (int i = 0; i <= Math.max(0, configuration.getMonthsAhead()); i++) {
+            YearMonth month = current.plusMonths(i);
+            if (existing.contains(month)) continue;
+            int moved = transactionOperations.executeWrite(status -> movementPartitionOperations.createPartition(month));
+            if (moved > 0) {
+                LOG.warn("Created movement partition for {}, moving {} rows out of movement_default", month, moved);
+            } else {
+                LOG.info("Created movement partition for {}", month);
+            }
+        }
+    }
+
+    public void archiveExpired() {
+        if (configuration.getRetentionMonths() <= 0) return;
+
+        YearMonth oldestKept = YearMonth.now(ZoneOffset.UTC).minusMonths(configuration.getRetentionMonths());
+        List<YearMonth> expired = movementPartitionOperations.monthlyPartitions("movement").stream()
+                .filter(m -> m.isBefore(oldestKept))
+                .sorted()
+                .toList();
+
+        for (YearMonth month : expired) {
+            transactionOperations.executeWrite(status -> {
+                movementPartitionOperations.archivePartition(month);
+                return null;
+            });
+            LOG.info("Moved movement partition for {} to movement_archive", month);
+        }
+    }
+}
@@ -1,87 +1,111 @@
 package org.example.domain.service;
 
-import io.micronaut.transaction.annotation.Transactional;
+import io.micronaut.transaction.TransactionOperations;
 import jakarta.inject.Singleton;
+import org.example.config.WriteCombiningConfiguration;
 import org.example.domain.Location;
-import org.example.domain.MovementType;
+import org.example.domain.event.StockChangedEvent.StockDelta;
 import org.example.domain.exception.InsufficientStockException;
 import org.example.domain.exception.NotFoundException;
-import org.example.persistence.entity.MovementEntity;
-import org.example.persistence.entity.ProductEntity;
-import org.example.persistence.repo.MovementRepository;
-import org.example.persistence.repo.ProductRepository;
-import org.example.persistence.repo.StockRepository;
-
-import java.time.Instant;
-
+import org.example.persistence.repo.MovementCommandOperations;
+import org.example.persistence.repo.MovementCommandOperations.MovementOutcome;
+import org.example.persistence.repo.MovementCommandOperations.Status;
+
+import java.sql.Connection;
+import java.util.List;
+
+/**
+ * Each command is a single statement (see {@link MovementCommandOperations}),
+ * so the transaction holds its row locks for one round trip. With write
+ * combining enabled, receipts and issues that do not join an outer transaction
+ * go through the {@link StockWriteCombiner} instead.
+ * <p>
+ * Issues and transfers leave the stock held by reservations (see
+ * {@link ReservedStock}) in place; only {@link #issueReserved} takes it.
+ */
 @Singleton
 public class MovementService {
 
-    private final ProductRepository productRepository;
-    private final StockRepository stockRepository;
-    private final MovementRepository movementRepository;
-
-    public MovementService(ProductRepository productRepository,
-                           StockRepository stockRepository,
-                           MovementRepository movementRepository) {
-        this.productRepository = productRepository;
-        this.stockRepository = stockRepository;
-        this.movementRepository = movementRepository;
+    private final MovementCommandOperations movementCommandOperations;
+    private final StockEventPublisher stockEventPublisher;
+    private final StockWriteCombiner stockWriteCombiner;
+    private final ReservedStock reservedStock;
+    private final WriteCombiningConfiguration writeCombining;
+    private final TransactionOperations<Connection> transactionOperations;
+
+    public MovementService(MovementCommandOperations movementCommandOperations,
+                           StockEventPublisher stockEventPublisher,
+                           StockWriteCombiner stockWriteCombiner,
+                           ReservedStock reservedStock,
+                           WriteCombiningConfiguration writeCombining,
+                           TransactionOperations<Connection> transactionOperations) {
+        this.movementCommandOperations = movementCommandOperations;
+        this.stockEventPublisher = stockEventPublisher;
+        this.stockWriteCombiner = stockWriteCombiner;
+        this.reservedStock = reservedStock;
+        this.writeCombining = writeCombining;
+        this.transactionOperations = transactionOperations;
     }
 
-    @Transactional
-    public void receipt(Long productId, long qty, Location toLocation, String note) {
+    public MovementOutcome receipt(Long productId, long qty, Location toLocation, String note) {
         requirePositive(qty);
-
-        ProductEntity product = productRepository.findById(productId)
-                .orElseThrow(() -> new NotFoundException("Product not found: id=" + productId));
+        requireProductId(productId);
 
         Location target = (toLocation == null) ? Location.BACKROOM : toLocation;
 
-        stockRepository.increaseQuantity(product.id(), target, qty);
-
-        movementRepository.save(new MovementEntity(
-                null,
-                product.id(),
-                MovementType.RECEIPT,
-                null,
-                target,
-                safeToInt(qty),
-                Instant.now(),
-                note,
-                null
-        ));
+        if (combine()) {
+            MovementOutcome outcome = stockWriteCombiner.submit(productId, target, safeToInt(qty), 0, note);
+            requireProductFound(outcome, productId);
+            return outcome;
+        }
+        return transactionOperations.executeWrite(status -> {
+            MovementOutcome outcome = movementCommandOperations.receipt(productId, target, safeToInt(qty), note);
+            requireProductFound(outcome, productId);
+
+            stockEventPublisher.stockChanged(
+                    List.of(new StockDelta(productId, target, qty)), outcome.transactionId());
+            return outcome;
+        });
     }
 
-    @Transactional
-    public void issue(Long productId, long qty, Location fromLocation, String note) {
-        requirePositive(qty);
+    /**
+     * Issues stock that is not reserved.
+     */
+    public MovementOutcome issue(Long productId, long qty, Location fromLocation, String note) {
+        return issue(productId, qty, fromLocation, 0, note);
+    }
 
-        ProductEntity product = productRepository.findById(productId)
-                .orElseThrow(() -> new NotFoundException("Product not found: id=" + productId));
+    /**
+     * Issues the stock a reservation of exactly {@code qty} holds at
+     * {@code fromLocation}. The caller ends the reservation afterwards.
+     */
+    public MovementOutcome issueReserved(Long productId, long qty, Location fromLocation, String note) {
+        return issue(productId, qty, fromLocation, qty, note);
+    }
+
+    private MovementOutcome issue(Long productId, long qty, Location fromLocation, long confirming, String note) {
+        requirePositive(qty);
+        requireProductId(productId);
 
         Location source = (fromLocation == null) ? Location.SHOPFLOOR : fromLocation;
 
-        long changed = stockRepository.decreaseQuantityIfEnough(product.id(), source, qty);
-        if (changed == 0) {
-            throw new InsufficientStockException("Not enough quantity to issue");
+        if (combine()) {
+            MovementOutcome outcome = stockWriteCombiner.submit(productId, source, -safeToInt(qty), confirming, note);
+            requireApplied(outcome, productId, "Not enough quantity to issue");
+            return outcome;
         }
-
-        movementRepository.save(new MovementEntity(
-                null,
-                product.id(),
-                MovementType.ISSUE,
-                source,
-                null,
-                safeToInt(qty),
-                Instant.now(),
-                note,
-                null
-        ));
+        return transactionOperations.executeWrite(status -> {
+            long keep = reservedStock.beginIssue(productId, source, qty) - confirming;
+            MovementOutcome outcome = movementCommandOperations.issue(productId, source, safeToInt(qty), keep, note);
+            requireApplied(outcome, productId, "Not enough quantity to issue");
+
+            stockEventPublisher.stockChanged(
+                    List.of(new StockDelta(productId, source, -qty)), outcome.transactionId());
+            return outcome;
+        });
     }
 
-    @Transactional
-    public void transfer(Long productId, long qty, Location from, Location to, String note) {
+    public MovementOutcome transfer(Long productId, long qty, Location from, Location to, String note) {
         requirePositive(qty);
 
         if (from == null || to == null) {
@@ -91,27 +115,48 @@ public class MovementService {
             throw new IllegalArgumentException("'from' and 'to' must be different");
         }
 
-        ProductEntity product = productRepository.findById(productId)
-                .orElseThrow(() -> new NotFoundException("Product not found: id=" + productId));
+        requireProductId(productId);
 
-        long changed = stockRepository.decreaseQuantityIfEnough(product.id(), from, qty);
-        if (changed == 0) {
-            throw new InsufficientStockException("Not enough quantity to transfer");
+        return transactionOperations.executeWrite(status -> {
+            long keep = reservedStock.beginIssue(productId, from, qty);
+            MovementOutcome outcome = movementCommandOperations.transfer(
+                    productId, from, to, safeToInt(qty), keep, note);
+            requireApplied(outcome, productId, "Not enough quantity to transfer");
+
+            stockEventPublisher.stockChanged(List.of(
+                    new StockDelta(productId, from, -qty),
+                    new StockDelta(productId, to, qty)), outcome.transactionId());
+            return outcome;
+        });
+    }
+
+    /**
+     * A combined write commits on its own, so it is not used inside a caller's transaction.
+     */
+    private boolean combine() {
+        return writeCombining.isEnabled() && transactionOperations.findTransactionStatus().isEmpty();
+    }
+
+    private static void requireProductId(Long productId) {
+        if (productId == null) {
+            throw new IllegalArgumentException("Field 'productId' is required");
         }
+    }
 
-        stockRepository.increaseQuantity(product.id(), to, qty);
-
-        movementRepository.save(new MovementEntity(
-                null,
-                product.id(),
-                MovementType.TRANSFER,
-                from,
-                to,
-                safeToInt(qty),
-                Instant.now(),
-                note,
-                null
-        ));
+    /**
+     * A receipt never lacks stock, so only a missing product can stop it.
+     */
+    private static void requireProductFound(MovementOutcome outcome, Long productId) {
+        if (outcome.status() == Status.PRODUCT_NOT_FOUND) {
+            throw new NotFoundException("Product not found: id=" + productId);
+        }
+    }
+
+    private static void requireApplied(MovementOutcome outcome, Long productId, String insufficientMessage) {
+        requireProductFound(outcome, productId);
+        if (outcome.status() == Status.INSUFFICIENT_STOCK) {
+            throw new InsufficientStockException(insufficientMessage);
+        }
     }
 
     private static void requirePositive(long qty) {
@@ -39,13 +39,12 @@ public class OrderSuggestionService {
     }
 
     public byte[] exportLowToCsv(Optional<String> query) {
-        List<StockView> views = stockService.getStocksView(query);
+        List<StockView> views = stockService.getLowStocksView(query);
 
         StringBuilder sb = new StringBuilder();
         sb.append("sku,name,minTotal,backroomQty,shopfloorQty,totalQty,suggestedQty\n");
 
         for (StockView v : views) {
-            if (!v.low()) continue;
             int min = v.minTotal();
             long suggested = Math.max(0, (long) min - v.totalQty());
 
@@ -0,0 +1,99 @@
+package org.example.domain.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micronaut.runtime.event.annotation.EventListener;
+import jakarta.inject.Singleton;
+import org.example.config.ProductCacheConfiguration;
+import org.example.domain.event.ProductChangedEvent;
+import org.example.domain.exception.NotFoundException;
+import org.example.persistence.entity.ProductEntity;
+import org.example.persistence.repo.ProductRepository;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bounded caches of SKU to product id and product id to {@link ProductInfo}, for
+ * the lookups on every sales import and movement. Unknown SKUs and ids are not
+ * cached. Entries of a product are invalidated once a change to it commits.
+ */
+@Singleton
+public class ProductLookupCache {
+
+    private final ProductRepository productRepository;
+
+    private final Cache<String, Long> idBySku;
+    private final Cache<Long, ProductInfo> infoById;
+
+    public ProductLookupCache(ProductRepository productRepository,
+                              ProductCacheConfiguration configuration) {
+        this.productRepository = productRepository;
+        this.idBySku = Caffeine.newBuilder()
+                .maximumSize(configuration.getMaximumSize())
+                .expireAfterWrite(configuration.getExpireAfterWrite())
+                .recordStats()
+                .build();
+        this.infoById = Caffeine.newBuilder()
+                .maximumSize(configuration.getMaximumSize())
+                .expireAfterWrite(configuration.getExpireAfterWrite())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * @return the ids of the SKUs that match a product; the others are absent
+     */
+    public Map<String, Long> idsBySku(Collection<String> skus) {
+        return idBySku.getAll(skus, this::loadIdsBySku);
+    }
+
+    /**
+     * @throws NotFoundException when there is no such product
+     */
+    public ProductInfo require(Long productId) {
+        ProductInfo info = infoById.get(productId, id -> productRepository.findById(id)
+                .map(ProductInfo::of)
+                .orElse(null));
+        if (info == null) {
+            throw new NotFoundException("Product not found: id=" + productId);
+        }
+        return info;
+    }
+
+    public Stats stats() {
+        return new Stats(idBySku.stats(), idBySku.estimatedSize(), infoById.stats(), infoById.estimatedSize());
+    }
+
+    @EventListener
+    void onProductChanged(ProductChangedEvent event) {
+        ProductEntity product = event.product();
+        infoById.invalidate(product.id());
+        idBySku.invalidate(product.sku());
+        if (event.previous() != null) {
+            idBySku.invalidate(event.previous().sku());
+        }
+    }
+
+    private Map<String, Long> loadIdsBySku(Set<? extends String> skus) {
+        Map<String, Long> ids = new HashMap<>();
+        for (ProductEntity p : productRepository.findBySkuIn(List.copyOf(skus))) {
+            ids.put(p.sku(), p.id());
+            infoById.put(p.id(), ProductInfo.of(p));
+        }
+        return ids;
+    }
+
+    public record ProductInfo(long id, boolean active, int minTotal) {
+
+        static ProductInfo of(ProductEntity p) {
+            return new ProductInfo(p.id(), Boolean.TRUE.equals(p.active()), p.minTotal() == null ? 0 : p.minTotal());
+        }
+    }
+
+    public record Stats(CacheStats sku, long skuSize, CacheStats product, long productSize) {}
+}
@@ -12,19 +12,37 @@ import org.example.persistence.repo.ProductRepository;
 import org.example.persistence.repo.StockRepository;
 
 import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
 import java.util.Optional;
 
 @Singleton
 public class ProductService {
 
+    public static final int MAX_SEARCH_RESULTS = 200;
+
+    /**
+     * Shorter queries have no trigram, so they only match SKU and name prefixes.
+     */
+    private static final int MIN_TRIGRAM_QUERY_LENGTH = 3;
+
+    /**
+     * Matches fetched per index scan and ranked, per result asked for; a broad
+     * query ranks only these instead of every matching product.
+     */
+    private static final int SEARCH_CANDIDATES_PER_RESULT = 4;
+
     private final ProductRepository productRepository;
     private final StockRepository stockRepository;
+    private final StockEventPublisher stockEventPublisher;
 
     public ProductService(ProductRepository productRepository,
-                          StockRepository stockRepository) {
+                          StockRepository stockRepository,
+                          StockEventPublisher stockEventPublisher) {
         this.productRepository = productRepository;
         this.stockRepository = stockRepository;
+        this.stockEventPublisher = stockEventPublisher;
     }
 
     @Transactional
@@ -52,6 +70,7 @@ public class ProductService {
         stockRepository.save(new StockEntity(new StockId(saved.id(), Location.BACKROOM),0, Instant.now()));
         stockRepository.save(new StockEntity(new StockId(saved.id(), Location.SHOPFLOOR), 0, Instant.now()));
 
+        stockEventPublisher.productChanged(null, saved);
         return saved;
     }
 
@@ -84,7 +103,9 @@ public class ProductService {
                 existing.updatedAt()
         );
 
-        return productRepository.update(updated);
+        ProductEntity saved = productRepository.update(updated);
+        stockEventPublisher.productChanged(existing, saved);
+        return saved;
     }
 
     @Transactional
@@ -105,7 +126,34 @@ public class ProductService {
                 existing.createdAt(),
                 existing.updatedAt()
         );
-        return productRepository.update(updated);
+        ProductEntity saved = productRepository.update(updated);
+        stockEventPublisher.productChanged(existing, saved);
+        return saved;
+    }
+
+    /**
+     * Ranked search over SKU and name, inactive products included: substring
+     * matches for queries of three or more characters, prefix matches otherwise.
+     * Only the first candidates of each index scan are ranked, so for a broad
+     * query a lower-ranked product may stand in for one never fetched.
+     */
+    public List<ProductEntity> search(String query, int limit) {
+        String exact = query.trim().toLowerCase(Locale.ROOT);
+        if (exact.isEmpty()) {
+            return List.of();
+        }
+        int size = Math.clamp(limit, 1, MAX_SEARCH_RESULTS);
+        int candidates = size * SEARCH_CANDIDATES_PER_RESULT;
+        String escaped = escapeLike(exact);
+
+        if (exact.length() < MIN_TRIGRAM_QUERY_LENGTH) {
+            return productRepository.searchByPrefix(exact, escaped + "%", candidates, size);
+        }
+        return productRepository.searchByTrigram(exact, escaped + "%", "%" + escaped + "%", candidates, size);
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
     }
 
     private static void requireNonBlank(String value, String field) {
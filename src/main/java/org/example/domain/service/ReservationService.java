@@ -0,0 +1,184 @@
+package org.example.domain.service;
+
+import io.micronaut.core.annotation.Nullable;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Singleton;
+import org.example.config.ReservationConfiguration;
+import org.example.domain.Location;
+import org.example.domain.dto.ReservationView;
+import org.example.domain.exception.InsufficientStockException;
+import org.example.domain.exception.NotFoundException;
+import org.example.persistence.repo.MovementCommandOperations.MovementOutcome;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds stock for a while without touching the database. Reserved quantities
+ * are counted per product and location in {@link ReservedStock} and checked,
+ * by compare-and-set, against the on-hand quantity of the {@link StockSnapshot}.
+ * Issues, transfers and movement batches cannot take reserved stock, and the
+ * stock views count it as unavailable. A reservation ends exactly once -
+ * confirmed, released or expired - by whoever removes it from the map; only
+ * confirming writes to the database, as an
+ * {@link MovementService#issueReserved issue of the reserved stock}.
+ * <p>
+ * Sales imports and stock counts are not held back: they record what already
+ * happened on the floor. A reservation they leave uncovered fails to confirm
+ * with {@link InsufficientStockException}.
+ * <p>
+ * Reservations are not persisted: a restart releases them all. They hold
+ * stock against this instance only.
+ */
+@Singleton
+public class ReservationService {
+
+    private static final int WHEEL_SIZE = 512;
+
+    private final StockSnapshot stockSnapshot;
+    private final ReservedStock reservedStock;
+    private final MovementService movementService;
+    private final ReservationConfiguration configuration;
+
+    private final Map<UUID, Reservation> reservations = new ConcurrentHashMap<>();
+    private final HashedWheelTimer timer;
+
+    public ReservationService(StockSnapshot stockSnapshot,
+                              ReservedStock reservedStock,
+                              MovementService movementService,
+                              ReservationConfiguration configuration) {
+        this.stockSnapshot = stockSnapshot;
+        this.reservedStock = reservedStock;
+        this.movementService = movementService;
+        this.configuration = configuration;
+        this.timer = new HashedWheelTimer(
+                Thread.ofPlatform().name("reservation-expiry").daemon().factory(),
+                configuration.getTimerTick().toMillis(), TimeUnit.MILLISECONDS, WHEEL_SIZE);
+    }
+
+    /**
+     * @param location SHOPFLOOR when null
+     * @param ttl      the configured default when null
+     * @throws InsufficientStockException when on-hand minus reserved and in-flight issues is less than {@code qty}
+     */
+    public ReservationView reserve(Long productId, long qty, @Nullable Location location, @Nullable Duration ttl) {
+        if (qty <= 0) {
+            throw new IllegalArgumentException("Quantity must be > 0");
+        }
+        Duration holdFor = ttl == null ? configuration.getDefaultTtl() : ttl;
+        if (holdFor.isNegative() || holdFor.isZero() || holdFor.compareTo(configuration.getMaxTtl()) > 0) {
+            throw new IllegalArgumentException("TTL must be positive and at most " + configuration.getMaxTtl());
+        }
+        Location source = location == null ? Location.SHOPFLOOR : location;
+
+        if (stockSnapshot.find(productId).isEmpty()) {
+            throw new NotFoundException("Product not found: id=" + productId);
+        }
+        if (!reservedStock.tryReserve(productId, source, qty, () -> onHand(productId, source))) {
+            throw new InsufficientStockException("Not enough quantity to reserve");
+        }
+        stockSnapshot.reservationChanged(productId);
+
+        StockKey key = new StockKey(productId, source);
+
+        UUID id = UUID.randomUUID();
+        Reservation reservation = new Reservation(id, key, qty, Instant.now().plus(holdFor));
+        reservations.put(id, reservation);
+        reservation.timeout = timer.newTimeout(t -> expire(id), holdFor.toMillis(), TimeUnit.MILLISECONDS);
+        return reservation.toView();
+    }
+
+    public ReservationView get(UUID id) {
+        return require(id).toView();
+    }
+
+    /**
+     * Issues the reserved quantity. The reservation ends either way; if the
+     * issue fails (the stock was sold or counted away meanwhile) the error is
+     * passed on.
+     */
+    public MovementOutcome confirm(UUID id) {
+        Reservation reservation = claim(id);
+        try {
+            return movementService.issueReserved(reservation.key.productId(), reservation.quantity,
+                    reservation.key.location(), "reservation " + id);
+        } finally {
+            unreserve(reservation);
+        }
+    }
+
+    public void release(UUID id) {
+        unreserve(claim(id));
+    }
+
+    @PreDestroy
+    void stop() {
+        timer.stop();
+    }
+
+    private void expire(UUID id) {
+        Reservation reservation = reservations.remove(id);
+        if (reservation != null) {
+            unreserve(reservation);
+        }
+    }
+
+    private Reservation claim(UUID id) {
+        Reservation reservation = reservations.remove(id);
+        if (reservation == null) {
+            throw new NotFoundException("Reservation not found or already ended: id=" + id);
+        }
+        Timeout timeout = reservation.timeout;
+        if (timeout != null) {
+            timeout.cancel();
+        }
+        return reservation;
+    }
+
+    private Reservation require(UUID id) {
+        Reservation reservation = reservations.get(id);
+        if (reservation == null) {
+            throw new NotFoundException("Reservation not found or already ended: id=" + id);
+        }
+        return reservation;
+    }
+
+    private void unreserve(Reservation reservation) {
+        reservedStock.unreserve(reservation.key.productId(), reservation.key.location(), reservation.quantity);
+        stockSnapshot.reservationChanged(reservation.key.productId());
+    }
+
+    private long onHand(long productId, Location location) {
+        return stockSnapshot.find(productId)
+                .map(stock -> location == Location.BACKROOM ? stock.backroomQty() : stock.shopfloorQty())
+                .orElse(0);
+    }
+
+    private record StockKey(long productId, Location location) {}
+
+    private static final class Reservation {
+
+        final UUID id;
+        final StockKey key;
+        final long quantity;
+        final Instant expiresAt;
+        volatile Timeout timeout;
+
+        Reservation(UUID id, StockKey key, long quantity, Instant expiresAt) {
+            this.id = id;
+            this.key = key;
+            this.quantity = quantity;
+            this.expiresAt = expiresAt;
+        }
+
+        ReservationView toView() {
+            return new ReservationView(id.toString(), key.productId(), key.location(), quantity, expiresAt);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package org.example.domain.service;
+
+import io.micronaut.transaction.TransactionOperations;
+import io.micronaut.transaction.TransactionStatus;
+import io.micronaut.transaction.support.TransactionSynchronization;
+import jakarta.inject.Singleton;
+import org.example.domain.Location;
+
+import java.sql.Connection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Stock held by open reservations, per product and location, kept in memory
+ * next to the issues that are currently committing there. Issues, transfers
+ * and movement batches leave the reserved quantity in place; only confirming
+ * a reservation takes it.
+ * <p>
+ * A reservation and an issue each register themselves before looking at the
+ * other ({@link #tryReserve}, {@link #beginIssue}), so at least one of them
+ * sees the other and accounts for it: stock is never promised to both. An
+ * issue stays registered until its transaction has completed and the
+ * {@link StockSnapshot} has applied its delta, so a reservation checking the
+ * snapshot counts it either as on-hand stock gone or as an issue in flight.
+ */
+@Singleton
+public class ReservedStock {
+
+    private final TransactionOperations<Connection> transactionOperations;
+
+    // counters stay in the map once created; there is one per product location at most
+    private final Map<StockKey, Counters> counters = new ConcurrentHashMap<>();
+
+    public ReservedStock(TransactionOperations<Connection> transactionOperations) {
+        this.transactionOperations = transactionOperations;
+    }
+
+    /**
+     * Quantity reserved at a product location.
+     */
+    public long reserved(long productId, Location location) {
+        Counters c = counters.get(new StockKey(productId, location));
+        return c == null ? 0 : c.reserved.get();
+    }
+
+    /**
+     * Quantity reserved at any location of a product.
+     */
+    public long reserved(long productId) {
+        long total = 0;
+        for (Location location : Location.values()) {
+            total += reserved(productId, location);
+        }
+        return total;
+    }
+
+    /**
+     * Products with stock reserved, and how much in total.
+     */
+    public Map<Long, Long> reservedByProduct() {
+        Map<Long, Long> byProduct = new HashMap<>();
+        counters.forEach((key, c) -> {
+            long reserved = c.reserved.get();
+            if (reserved > 0) byProduct.merge(key.productId(), reserved, Long::sum);
+        });
+        return byProduct;
+    }
+
+    /**
+     * Reserves {@code qty} if the on-hand quantity covers it on top of what is
+     * already reserved or being issued there.
+     *
+     * @param onHand on-hand quantity at the location, as far as committed
+     *               issues are concerned; read after the issues in flight
+     * @return false, reserving nothing, if there is not enough
+     */
+    boolean tryReserve(long productId, Location location, long qty, LongSupplier onHand) {
+        Counters c = counters.computeIfAbsent(new StockKey(productId, location), k -> new Counters());
+        while (true) {
+            long current = c.reserved.get();
+            if (current + qty > onHand.getAsLong()) {
+                return false;
+            }
+            if (c.reserved.compareAndSet(current, current + qty)) {
+                // issues that began before the reservation became visible
+                long issuing = c.issuing.get();
+                if (issuing > 0 && current + qty + issuing > onHand.getAsLong()) {
+                    c.reserved.addAndGet(-qty);
+                    return false;
+                }
+                return true;
+            }
+        }
+    }
+
+    void unreserve(long productId, Location location, long qty) {
+        counters.get(new StockKey(productId, location)).reserved.addAndGet(-qty);
+    }
+
+    /**
+     * Registers an issue of {@code qty} from a product location until the
+     * current transaction completes. Must be called inside the transaction
+     * that issues, before it checks the stock.
+     *
+     * @return the quantity reserved there, which the issue must leave in place
+     * except for what a reservation it confirms holds itself
+     */
+    public long beginIssue(long productId, Location location, long qty) {
+        TransactionStatus<?> status = transactionOperations.findTransactionStatus()
+                .orElseThrow(() -> new IllegalStateException("An issue must be registered inside its transaction"));
+        Counters c = counters.computeIfAbsent(new StockKey(productId, location), k -> new Counters());
+        c.issuing.addAndGet(qty);
+        status.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(Status completion) {
+                c.issuing.addAndGet(-qty);
+            }
+        });
+        return c.reserved.get();
+    }
+
+    private record StockKey(long productId, Location location) {}
+
+    private static final class Counters {
+
+        final AtomicLong reserved = new AtomicLong();
+        final AtomicLong issuing = new AtomicLong();
+    }
+}
@@ -0,0 +1,309 @@
+package org.example.domain.service;
+
+import jakarta.inject.Singleton;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.example.config.SalesImportConfiguration;
+import org.example.domain.SalesImportStatus;
+import org.example.domain.dto.SalesArchiveImportResult;
+import org.example.domain.dto.SalesImportResult;
+import org.example.domain.service.SalesImportApplier.ApplyResult;
+import org.example.persistence.entity.SalesImportEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Imports a ZIP (one CSV per entry) or gzip-compressed sales upload. Entries
+ * are parsed in parallel and each is registered as its own {@code sales_import}
+ * row, so an entry that was already imported is skipped. The per-SKU totals of
+ * the remaining entries are merged and applied once, under the archive's row;
+ * the archive and all its entries turn SUCCESS in the same commit. Stock taken
+ * is therefore only reported for the archive; an entry reports its own
+ * unknown SKUs.
+ */
+@Singleton
+public class SalesArchiveImportService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SalesArchiveImportService.class);
+
+    private static final int MAX_FILENAME_LENGTH = 255;
+
+    private final SalesImportService salesImportService;
+    private final SalesImportTracker salesImportTracker;
+    private final SalesImportConfiguration configuration;
+
+    public SalesArchiveImportService(SalesImportService salesImportService,
+                                     SalesImportTracker salesImportTracker,
+                                     SalesImportConfiguration configuration) {
+        this.salesImportService = salesImportService;
+        this.salesImportTracker = salesImportTracker;
+        this.configuration = configuration;
+    }
+
+    /**
+     * Checks the stream for a ZIP or gzip signature and resets it.
+     */
+    public static boolean isArchive(BufferedInputStream in) throws IOException {
+        return detect(in) != null;
+    }
+
+    public SalesArchiveImportResult importArchive(InputStream in, String originalFilename) {
+        SalesImportService.SpooledRegistration spooled;
+        try {
+            spooled = registerSpooled(in, originalFilename);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to read archive upload", ex);
+        }
+
+        SpooledUpload upload = spooled.upload();
+        try {
+            SalesImportTracker.Registration registration = spooled.registration();
+            if (registration.duplicate()) {
+                return new SalesArchiveImportResult(
+                        SalesImportService.skippedDuplicate(registration.salesImport()), List.of());
+            }
+            return importRegistered(registration.salesImport(), upload);
+        } finally {
+            try {
+                upload.delete();
+            } catch (IOException ex) {
+                LOG.warn("Unable to delete spooled sales archive {}", upload.path(), ex);
+            }
+        }
+    }
+
+    /**
+     * Spools the archive and registers it by its own SHA-256, so re-uploading
+     * the same archive is a duplicate. The caller owns the spooled file unless
+     * this throws.
+     */
+    SalesImportService.SpooledRegistration registerSpooled(InputStream in, String originalFilename)
+            throws IOException {
+        SpooledUpload upload = SpooledUpload.spool(in);
+        try {
+            if (upload.bytes() == 0) {
+                throw new IllegalArgumentException("Archive is empty");
+            }
+            SalesImportTracker.Registration registration = salesImportTracker.register(
+                    upload.sha256(), SalesImportService.safeFilename(originalFilename), 0, false,
+                    upload.bytes(), null, null);
+            return new SalesImportService.SpooledRegistration(upload, registration);
+        } catch (RuntimeException ex) {
+            upload.delete();
+            throw ex;
+        }
+    }
+
+    SalesArchiveImportResult importRegistered(SalesImportEntity archive, SpooledUpload upload) {
+        Long archiveId = archive.id();
+        String note = "sale import: " + archive.originalFilename();
+        List<Long> registeredIds = new ArrayList<>();
+
+        salesImportTracker.started(archiveId);
+        try {
+            List<ParsedEntry> parsed = parseEntries(upload, archive.originalFilename());
+
+            Map<String, Long> qtyBySku = new LinkedHashMap<>();
+            List<SalesImportResult> entries = new ArrayList<>(parsed.size());
+            List<SalesImportEntity> registered = new ArrayList<>(parsed.size());
+            List<ParsedEntry> toApply = new ArrayList<>(parsed.size());
+            int rowsRead = 0;
+            int rowsValid = 0;
+            long qtyRequested = 0;
+
+            for (ParsedEntry entry : parsed) {
+                SalesImportTracker.Registration registration = salesImportTracker.register(
+                        entry.sha256, entryFilename(archive.originalFilename(), entry.name),
+                        entry.summary.rowsRead(), false, entry.summary.bytes(), null, archiveId);
+                SalesImportEntity e = registration.salesImport();
+                if (registration.duplicate()) {
+                    entries.add(SalesImportService.skippedDuplicate(e));
+                    continue;
+                }
+                registeredIds.add(e.id());
+                registered.add(e);
+                toApply.add(entry);
+
+                entry.qtyBySku.forEach((sku, qty) -> qtyBySku.merge(sku, qty, Long::sum));
+                rowsRead += entry.summary.rowsRead();
+                rowsValid += entry.summary.rowsValid();
+                qtyRequested += entry.summary.totalQtyRequested();
+            }
+
+            int totalRead = rowsRead;
+            int totalValid = rowsValid;
+            ApplyResult applied = salesImportService.applyAndCommit(qtyBySku, archiveId, 0, note,
+                    (skusDone, skusTotal) -> salesImportTracker.progress(
+                            archiveId, (int) ((long) totalValid * skusDone / Math.max(1, skusTotal))),
+                    () -> {
+                        for (int i = 0; i < registered.size(); i++) {
+                            SalesCsvReader.Summary summary = toApply.get(i).summary;
+                            salesImportTracker.succeeded(registered.get(i).id(), summary.rowsRead(), summary.rowsValid());
+                        }
+                        salesImportTracker.succeeded(archiveId, totalRead, totalValid);
+                    });
+
+            for (int i = 0; i < registered.size(); i++) {
+                ParsedEntry entry = toApply.get(i);
+                SalesImportEntity e = registered.get(i);
+                entries.add(new SalesImportResult(
+                        e.id(),
+                        SalesImportStatus.SUCCESS.name(),
+                        entry.summary.rowsRead(),
+                        entry.summary.rowsValid(),
+                        salesImportService.countMissing(entry.qtyBySku.keySet()),
+                        null,
+                        entry.summary.totalQtyRequested(),
+                        null,
+                        e.sha256()
+                ));
+            }
+
+            return new SalesArchiveImportResult(
+                    new SalesImportResult(
+                            archiveId,
+                            SalesImportStatus.SUCCESS.name(),
+                            totalRead,
+                            totalValid,
+                            applied.missingSkus(),
+                            applied.processedSkus(),
+                            qtyRequested,
+                            applied.totalQuantityApplied(),
+                            archive.sha256()
+                    ),
+                    entries
+            );
+        } catch (RuntimeException ex) {
+            for (Long id : registeredIds) {
+                salesImportTracker.failed(id, 0);
+            }
+            salesImportTracker.failed(archiveId, 0);
+            throw ex;
+        }
+    }
+
+    private List<ParsedEntry> parseEntries(SpooledUpload upload, String archiveName) {
+        try {
+            Format format;
+            try (BufferedInputStream in = new BufferedInputStream(upload.open())) {
+                format = detect(in);
+            }
+            if (format == null) {
+                throw new IllegalArgumentException("Upload is not a ZIP or gzip archive");
+            }
+            if (format == Format.GZIP) {
+                InputStream in = new GzipCompressorInputStream(new BufferedInputStream(upload.open()), true);
+                return List.of(parse(gzipEntryName(archiveName), in));
+            }
+            return parseZipEntries(upload);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to read archive upload", ex);
+        }
+    }
+
+    private List<ParsedEntry> parseZipEntries(SpooledUpload upload) throws IOException {
+        int threads = Math.max(1, configuration.getArchiveThreads());
+        try (ZipFile zip = ZipFile.builder().setPath(upload.path()).get();
+             ExecutorService pool = Executors.newFixedThreadPool(
+                     threads, Thread.ofPlatform().name("sales-archive-", 0).factory())) {
+
+            List<Future<ParsedEntry>> futures = new ArrayList<>();
+            for (ZipArchiveEntry entry : Collections.list(zip.getEntries())) {
+                if (entry.isDirectory() || entry.getSize() == 0 || isMetadata(entry.getName())) continue;
+                if (!zip.canReadEntryData(entry)) {
+                    throw new IllegalArgumentException("Unsupported archive entry: " + entry.getName());
+                }
+                futures.add(pool.submit(() -> parse(entry.getName(), zip.getInputStream(entry))));
+            }
+
+            List<ParsedEntry> parsed = new ArrayList<>(futures.size());
+            for (Future<ParsedEntry> future : futures) {
+                try {
+                    parsed.add(future.get());
+                } catch (ExecutionException ex) {
+                    pool.shutdownNow();
+                    if (ex.getCause() instanceof RuntimeException re) throw re;
+                    if (ex.getCause() instanceof IOException io) throw io;
+                    throw new IllegalStateException(ex.getCause());
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    pool.shutdownNow();
+                    throw new IllegalStateException("Interrupted while reading archive entries", ex);
+                }
+            }
+            return parsed;
+        }
+    }
+
+    private static ParsedEntry parse(String name, InputStream in) {
+        MessageDigest md = SalesImportService.newSha256();
+        Map<String, Long> qtyBySku = new LinkedHashMap<>();
+        try {
+            SalesCsvReader.Summary summary = SalesCsvReader.read(in, md, 0,
+                    (line, sku, qty) -> qtyBySku.merge(sku, qty, Long::sum));
+            return new ParsedEntry(name, qtyBySku, summary, SalesImportService.toHex(md.digest()));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException(name + ": " + ex.getMessage(), ex);
+        }
+    }
+
+    private static Format detect(BufferedInputStream in) throws IOException {
+        in.mark(4);
+        byte[] magic = in.readNBytes(4);
+        in.reset();
+
+        if (magic.length >= 4 && magic[0] == 'P' && magic[1] == 'K'
+                && ((magic[2] == 3 && magic[3] == 4) || (magic[2] == 5 && magic[3] == 6))) {
+            return Format.ZIP;
+        }
+        if (magic.length >= 2 && magic[0] == (byte) 0x1f && magic[1] == (byte) 0x8b) {
+            return Format.GZIP;
+        }
+        return null;
+    }
+
+    private static boolean isMetadata(String entryName) {
+        String baseName = entryName.substring(entryName.lastIndexOf('/') + 1);
+        return entryName.startsWith("__MACOSX/") || baseName.startsWith(".");
+    }
+
+    private static String gzipEntryName(String archiveName) {
+        String lower = archiveName.toLowerCase();
+        if (lower.endsWith(".gz")) return archiveName.substring(0, archiveName.length() - 3);
+        if (lower.endsWith(".gzip")) return archiveName.substring(0, archiveName.length() - 5);
+        return archiveName;
+    }
+
+    private static String entryFilename(String archiveName, String entryName) {
+        String name = SalesImportService.safeFilename(archiveName + "!" + entryName);
+        return name.length() <= MAX_FILENAME_LENGTH ? name : name.substring(name.length() - MAX_FILENAME_LENGTH);
+    }
+
+    private enum Format {
+        ZIP,
+        GZIP
+    }
+
+    private record ParsedEntry(
+            String name,
+            Map<String, Long> qtyBySku,
+            SalesCsvReader.Summary summary,
+            String sha256
+    ) {}
+}
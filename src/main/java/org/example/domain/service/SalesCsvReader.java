@@ -0,0 +1,244 @@
+package org.example.domain.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+/**
+ * Reads a sales CSV ({@code sku,quantity} or {@code sku;quantity}) row by row,
+ * feeding every byte into the given digest. Blank lines are not rows; header,
+ * malformed and non-positive rows are counted as read but not handed out.
+ * <p>
+ * Lines are tokenized on the raw UTF-8 bytes: quantities are parsed in place
+ * and each distinct SKU is decoded to a {@link String} once, so a row costs no
+ * allocation beyond what the handler does with it.
+ */
+final class SalesCsvReader {
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_INTERNED_SKUS = 1 << 20;
+    private static final long INVALID_QTY = -1;
+
+    private final MessageDigest md;
+    private final int skipLines;
+    private final RowHandler handler;
+
+    private byte[][] skuBytes = new byte[1024][];
+    private String[] skuStrings = new String[1024];
+    private int skuCount;
+
+    private int rowsRead;
+    private int rowsValid;
+    private long totalQtyRequested;
+    private long bytes;
+
+    private SalesCsvReader(MessageDigest md, int skipLines, RowHandler handler) {
+        this.md = md;
+        this.skipLines = skipLines;
+        this.handler = handler;
+    }
+
+    @FunctionalInterface
+    interface RowHandler {
+
+        /**
+         * @param line 1-based row number, blank lines not counted
+         */
+        void row(int line, String sku, long qty);
+    }
+
+    /**
+     * @param skipLines rows up to and including this number are validated and
+     *                  counted but not passed to the handler
+     */
+    static Summary read(InputStream in, MessageDigest md, int skipLines, RowHandler handler) {
+        SalesCsvReader reader = new SalesCsvReader(md, skipLines, handler);
+        try (in) {
+            reader.consume(in);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to read CSV upload", ex);
+        }
+        return new Summary(reader.rowsRead, reader.rowsValid, reader.totalQtyRequested, reader.bytes);
+    }
+
+    private void consume(InputStream in) throws IOException {
+        byte[] buf = new byte[READ_BUFFER_SIZE];
+        int len = in.read(buf, 0, buf.length);
+        if (len < 0) {
+            throw new IllegalArgumentException("CSV file is empty");
+        }
+        md.update(buf, 0, len);
+        bytes = len;
+
+        int scanned = 0;
+        while (true) {
+            int lineStart = 0;
+            for (int i = scanned; i < len; i++) {
+                byte c = buf[i];
+                if (c == '\n' || c == '\r') {
+                    line(buf, lineStart, i);
+                    lineStart = i + 1;
+                }
+            }
+
+            // keep the unterminated tail, it has already been scanned
+            int tail = len - lineStart;
+            System.arraycopy(buf, lineStart, buf, 0, tail);
+            if (tail == buf.length) {
+                buf = Arrays.copyOf(buf, buf.length * 2);
+            }
+            scanned = tail;
+
+            int n = in.read(buf, tail, buf.length - tail);
+            if (n < 0) {
+                line(buf, 0, tail);
+                return;
+            }
+            md.update(buf, tail, n);
+            bytes += n;
+            len = tail + n;
+        }
+    }
+
+    private void line(byte[] b, int start, int end) {
+        while (start < end && isTrimmed(b[start])) start++;
+        while (end > start && isTrimmed(b[end - 1])) end--;
+        if (start == end) return;
+
+        rowsRead++;
+
+        int sep = indexOfSeparator(b, start, end);
+        if (sep < 0) return;
+
+        int qtyEnd = indexOfSeparator(b, sep + 1, end);
+        if (qtyEnd < 0) qtyEnd = end;
+
+        int skuStart = start;
+        int skuEnd = sep;
+        while (skuEnd > skuStart && isTrimmed(b[skuEnd - 1])) skuEnd--;
+
+        int qtyStart = sep + 1;
+        while (qtyStart < qtyEnd && isTrimmed(b[qtyStart])) qtyStart++;
+        while (qtyEnd > qtyStart && isTrimmed(b[qtyEnd - 1])) qtyEnd--;
+
+        if (equalsIgnoreCaseAscii(b, skuStart, skuEnd, "sku")
+                || equalsIgnoreCaseAscii(b, qtyStart, qtyEnd, "quantity")) return;
+        if (skuStart == skuEnd) return;
+
+        long qty = parsePositiveLong(b, qtyStart, qtyEnd);
+        if (qty <= 0) return;
+
+        rowsValid++;
+        if (rowsRead <= skipLines) return;
+
+        totalQtyRequested += qty;
+        handler.row(rowsRead, sku(b, skuStart, skuEnd), qty);
+    }
+
+    private static boolean isTrimmed(byte c) {
+        // same set as String.trim(); UTF-8 continuation bytes are negative
+        return c >= 0 && c <= ' ';
+    }
+
+    private static int indexOfSeparator(byte[] b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (b[i] == ',' || b[i] == ';') return i;
+        }
+        return -1;
+    }
+
+    private static boolean equalsIgnoreCaseAscii(byte[] b, int from, int to, String lowerCase) {
+        if (to - from != lowerCase.length()) return false;
+        for (int i = 0; i < lowerCase.length(); i++) {
+            if ((b[from + i] | 0x20) != lowerCase.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the value, 0 for a signed-negative or zero quantity, or
+     * {@link #INVALID_QTY} when it would not parse as a long
+     */
+    private static long parsePositiveLong(byte[] b, int from, int to) {
+        if (from < to && (b[from] == '+' || b[from] == '-')) {
+            if (b[from] == '-') {
+                return to - from > 1 ? 0 : INVALID_QTY;
+            }
+            from++;
+        }
+        if (from == to) return INVALID_QTY;
+
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = b[i] - '0';
+            if (digit < 0 || digit > 9) return INVALID_QTY;
+            if (value > (Long.MAX_VALUE - digit) / 10) return INVALID_QTY;
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private String sku(byte[] b, int from, int to) {
+        int hash = 1;
+        for (int i = from; i < to; i++) {
+            hash = 31 * hash + b[i];
+        }
+
+        int mask = skuBytes.length - 1;
+        int slot = mix(hash) & mask;
+        byte[] candidate;
+        while ((candidate = skuBytes[slot]) != null) {
+            if (Arrays.equals(candidate, 0, candidate.length, b, from, to)) {
+                return skuStrings[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        String sku = new String(b, from, to - from, StandardCharsets.UTF_8);
+        if (skuCount < MAX_INTERNED_SKUS) {
+            skuBytes[slot] = Arrays.copyOfRange(b, from, to);
+            skuStrings[slot] = sku;
+            if (++skuCount * 2 > skuBytes.length) {
+                growSkuTable();
+            }
+        }
+        return sku;
+    }
+
+    private void growSkuTable() {
+        byte[][] oldBytes = skuBytes;
+        String[] oldStrings = skuStrings;
+        skuBytes = new byte[oldBytes.length * 2][];
+        skuStrings = new String[oldBytes.length * 2];
+
+        int mask = skuBytes.length - 1;
+        for (int i = 0; i < oldBytes.length; i++) {
+            byte[] key = oldBytes[i];
+            if (key == null) continue;
+            int slot = mix(Arrays.hashCode(key)) & mask;
+            while (skuBytes[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            skuBytes[slot] = key;
+            skuStrings[slot] = oldStrings[i];
+        }
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * @param totalQtyRequested sum over the rows handed to the handler
+     * @param bytes             size of the input
+     */
+    record Summary(
+            int rowsRead,
+            int rowsValid,
+            long totalQtyRequested,
+            long bytes
+    ) {}
+}
@@ -0,0 +1,97 @@
+package org.example.domain.service;
+
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.transaction.TransactionOperations;
+import jakarta.inject.Singleton;
+import org.example.config.SalesImportConfiguration;
+import org.example.domain.dto.SalesDailyBackfillResult;
+import org.example.persistence.repo.SalesDailyOperations;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Rebuilds the {@code sales_daily} rollup from the movement ledger, archived
+ * months included. The range is split into fixed slices of days, each rebuilt
+ * in its own transaction, several at a time. Slices reaching into yesterday or
+ * later lock the rollup against imports for their duration, so no live sale is
+ * lost or counted twice.
+ */
+@Singleton
+public class SalesDailyBackfill {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SalesDailyBackfill.class);
+
+    private static final int SLICE_DAYS = 7;
+
+    private final SalesDailyOperations salesDailyOperations;
+    private final SalesImportConfiguration configuration;
+    private final TransactionOperations<Connection> transactionOperations;
+
+    public SalesDailyBackfill(SalesDailyOperations salesDailyOperations,
+                              SalesImportConfiguration configuration,
+                              TransactionOperations<Connection> transactionOperations) {
+        this.salesDailyOperations = salesDailyOperations;
+        this.configuration = configuration;
+        this.transactionOperations = transactionOperations;
+    }
+
+    /**
+     * @param from first day to rebuild, defaults to the day of the first sale
+     * @param to   exclusive, defaults to tomorrow (UTC)
+     */
+    public SalesDailyBackfillResult backfill(@Nullable LocalDate from, @Nullable LocalDate to) {
+        long started = System.nanoTime();
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        LocalDate start = from != null ? from : salesDailyOperations.firstSaleDay();
+        LocalDate end = to != null ? to : today.plusDays(1);
+        if (start == null || !start.isBefore(end)) {
+            return new SalesDailyBackfillResult(start, end, 0, 0, elapsedMillis(started));
+        }
+
+        // imports started before midnight may still write yesterday's rows
+        LocalDate liveFrom = today.minusDays(1);
+        int threads = Math.max(1, configuration.getRollupBackfillThreads());
+
+        List<Future<Integer>> futures = new ArrayList<>();
+        try (ExecutorService pool = Executors.newFixedThreadPool(
+                threads, Thread.ofVirtual().name("sales-daily-backfill-", 0).factory())) {
+            for (LocalDate sliceFrom = start; sliceFrom.isBefore(end); sliceFrom = sliceFrom.plusDays(SLICE_DAYS)) {
+                LocalDate sliceTo = sliceFrom.plusDays(SLICE_DAYS).isBefore(end) ? sliceFrom.plusDays(SLICE_DAYS) : end;
+                LocalDate sliceStart = sliceFrom;
+                boolean live = sliceTo.isAfter(liveFrom);
+                futures.add(pool.submit(() -> transactionOperations.executeWrite(
+                        status -> salesDailyOperations.rebuild(sliceStart, sliceTo, live))));
+            }
+
+            long rows = 0;
+            for (Future<Integer> future : futures) {
+                rows += future.get();
+            }
+
+            long elapsed = elapsedMillis(started);
+            LOG.info("Rebuilt sales_daily for [{}, {}): {} rows in {} ranges, {} ms", start, end, rows, futures.size(), elapsed);
+            return new SalesDailyBackfillResult(start, end, futures.size(), rows, elapsed);
+
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException re) throw re;
+            throw new IllegalStateException("sales_daily backfill failed", ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during sales_daily backfill", ex);
+        }
+    }
+
+    private static long elapsedMillis(long startedNanos) {
+        return (System.nanoTime() - startedNanos) / 1_000_000;
+    }
+}
@@ -0,0 +1,190 @@
+package org.example.domain.service;
+
+import io.micronaut.transaction.annotation.Transactional;
+import jakarta.inject.Singleton;
+import org.example.config.SalesImportConfiguration;
+import org.example.domain.Location;
+import org.example.domain.MovementType;
+import org.example.domain.event.StockChangedEvent.StockDelta;
+import org.example.persistence.entity.MovementEntity;
+import org.example.persistence.repo.MovementBulkWriter;
+import org.example.persistence.repo.SalesDailyOperations;
+import org.example.persistence.repo.StockBulkOperations;
+import org.example.persistence.repo.StockBulkOperations.WaterfallTake;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Applies aggregated sales quantities to stock in batches of SKUs: one query to
+ * resolve the SKUs, one statement for the SHOPFLOOR-then-BACKROOM decrement and
+ * one COPY for the SALE_IMPORT movements per batch, plus one upsert into the
+ * {@code sales_daily} rollup.
+ */
+@Singleton
+public class SalesImportApplier {
+
+    private final ProductLookupCache productLookupCache;
+    private final StockBulkOperations stockBulkOperations;
+    private final MovementBulkWriter movementBulkWriter;
+    private final SalesDailyOperations salesDailyOperations;
+    private final StockEventPublisher stockEventPublisher;
+    private final SalesImportConfiguration configuration;
+
+    public SalesImportApplier(ProductLookupCache productLookupCache,
+                              StockBulkOperations stockBulkOperations,
+                              MovementBulkWriter movementBulkWriter,
+                              SalesDailyOperations salesDailyOperations,
+                              StockEventPublisher stockEventPublisher,
+                              SalesImportConfiguration configuration) {
+        this.productLookupCache = productLookupCache;
+        this.stockBulkOperations = stockBulkOperations;
+        this.movementBulkWriter = movementBulkWriter;
+        this.salesDailyOperations = salesDailyOperations;
+        this.stockEventPublisher = stockEventPublisher;
+        this.configuration = configuration;
+    }
+
+    @Transactional
+    public ApplyResult apply(Map<String, Long> qtyBySku, Long importId, String note) {
+        return apply(qtyBySku, importId, note, ProgressListener.NONE);
+    }
+
+    /**
+     * Resolves all SKUs first and then applies them in ascending product id
+     * order, so every import acquires its stock row locks in the same global
+     * order and concurrent imports cannot deadlock each other.
+     */
+    @Transactional
+    public ApplyResult apply(Map<String, Long> qtyBySku, Long importId, String note, ProgressListener listener) {
+        int batchSize = Math.max(1, configuration.getBatchSize());
+        int skusTotal = qtyBySku.size();
+
+        TreeMap<Long, Long> qtyByProductId = new TreeMap<>();
+        int missingSkus = resolve(qtyBySku, batchSize, qtyByProductId);
+
+        ApplyResult total = new ApplyResult(missingSkus, 0, 0L);
+        int skusDone = missingSkus;
+
+        long[] productIds = new long[Math.min(batchSize, qtyByProductId.size())];
+        long[] quantities = new long[productIds.length];
+        int n = 0;
+        for (Map.Entry<Long, Long> entry : qtyByProductId.entrySet()) {
+            productIds[n] = entry.getKey();
+            quantities[n] = entry.getValue();
+            n++;
+            if (n == productIds.length) {
+                total = total.plus(applyBatch(productIds, quantities, importId, note));
+                skusDone += n;
+                listener.batchApplied(skusDone, skusTotal);
+                n = 0;
+            }
+        }
+        if (n > 0) {
+            total = total.plus(applyBatch(Arrays.copyOf(productIds, n), Arrays.copyOf(quantities, n), importId, note));
+            skusDone += n;
+            listener.batchApplied(skusDone, skusTotal);
+        } else if (qtyByProductId.isEmpty()) {
+            listener.batchApplied(skusDone, skusTotal);
+        }
+        return total;
+    }
+
+    /**
+     * @return number of SKUs that did not match a product
+     */
+    private int resolve(Map<String, Long> qtyBySku, int batchSize, Map<Long, Long> qtyByProductId) {
+        int missingSkus = 0;
+        List<String> skus = new ArrayList<>(Math.min(batchSize, qtyBySku.size()));
+        Iterator<String> it = qtyBySku.keySet().iterator();
+        while (it.hasNext()) {
+            skus.add(it.next());
+            if (skus.size() == batchSize || !it.hasNext()) {
+                Map<String, Long> ids = productLookupCache.idsBySku(skus);
+                ids.forEach((sku, id) -> qtyByProductId.put(id, qtyBySku.get(sku)));
+                missingSkus += skus.size() - ids.size();
+                skus.clear();
+            }
+        }
+        return missingSkus;
+    }
+
+    private ApplyResult applyBatch(long[] productIds, long[] quantities, Long importId, String note) {
+        List<WaterfallTake> takes = stockBulkOperations.takeShopfloorThenBackroom(productIds, quantities);
+
+        Instant now = Instant.now();
+        List<MovementEntity> movements = new ArrayList<>(takes.size());
+        List<StockDelta> deltas = new ArrayList<>(takes.size());
+        int processedSkus = 0;
+        long totalQtyApplied = 0;
+
+        for (WaterfallTake take : takes) {
+            if (take.fromShopfloor() > 0) {
+                movements.add(saleMovement(take.productId(), Location.SHOPFLOOR, take.fromShopfloor(), now, note, importId));
+                deltas.add(new StockDelta(take.productId(), Location.SHOPFLOOR, -take.fromShopfloor()));
+            }
+            if (take.fromBackroom() > 0) {
+                movements.add(saleMovement(take.productId(), Location.BACKROOM, take.fromBackroom(), now, note, importId));
+                deltas.add(new StockDelta(take.productId(), Location.BACKROOM, -take.fromBackroom()));
+            }
+
+            long appliedForSku = take.fromShopfloor() + take.fromBackroom();
+            if (appliedForSku > 0) {
+                processedSkus++;
+                totalQtyApplied += appliedForSku;
+            }
+        }
+
+        if (!movements.isEmpty()) {
+            movementBulkWriter.write(movements);
+            salesDailyOperations.add(movements);
+            stockEventPublisher.stockChanged(deltas);
+        }
+
+        return new ApplyResult(0, processedSkus, totalQtyApplied);
+    }
+
+    private static MovementEntity saleMovement(long productId, Location from, long qty, Instant at, String note, Long importId) {
+        if (qty > Integer.MAX_VALUE) throw new IllegalArgumentException("Quantity exceeds Integer.MAX_VALUE");
+        return new MovementEntity(
+                null,
+                productId,
+                MovementType.SALE_IMPORT,
+                from,
+                null,
+                (int) qty,
+                at,
+                note,
+                importId
+        );
+    }
+
+    @FunctionalInterface
+    public interface ProgressListener {
+
+        ProgressListener NONE = (skusDone, skusTotal) -> {};
+
+        void batchApplied(int skusDone, int skusTotal);
+    }
+
+    public record ApplyResult(
+            int missingSkus,
+            int processedSkus,
+            long totalQuantityApplied
+    ) {
+        static final ApplyResult EMPTY = new ApplyResult(0, 0, 0L);
+
+        ApplyResult plus(ApplyResult other) {
+            return new ApplyResult(
+                    missingSkus + other.missingSkus,
+                    processedSkus + other.processedSkus,
+                    totalQuantityApplied + other.totalQuantityApplied
+            );
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package org.example.domain.service;
+
+import io.micronaut.context.event.StartupEvent;
+import io.micronaut.runtime.event.annotation.EventListener;
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Singleton;
+import org.example.config.SalesImportConfiguration;
+import org.example.domain.dto.SalesImportStatusView;
+import org.example.persistence.entity.SalesImportEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs sales imports in the background on a bounded pool of virtual threads.
+ * The upload is spooled to a temp file so the HTTP request can return as soon
+ * as the {@code sales_import} row is registered.
+ */
+@Singleton
+public class SalesImportJobs {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SalesImportJobs.class);
+
+    private final SalesImportService salesImportService;
+    private final SalesArchiveImportService salesArchiveImportService;
+    private final SalesImportTracker salesImportTracker;
+    private final ThreadPoolExecutor executor;
+
+    public SalesImportJobs(SalesImportService salesImportService,
+                           SalesArchiveImportService salesArchiveImportService,
+                           SalesImportTracker salesImportTracker,
+                           SalesImportConfiguration configuration) {
+        this.salesImportService = salesImportService;
+        this.salesArchiveImportService = salesArchiveImportService;
+        this.salesImportTracker = salesImportTracker;
+
+        int workers = Math.max(1, configuration.getWorkers());
+        this.executor = new ThreadPoolExecutor(
+                workers,
+                workers,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, configuration.getQueueCapacity())),
+                Thread.ofVirtual().name("sales-import-", 0).factory()
+        );
+    }
+
+    public Submission submit(InputStream in, String originalFilename) throws IOException {
+        return submit(in, originalFilename, false);
+    }
+
+    /**
+     * @param incremental see {@link SalesImportService#importCsv(InputStream, String, boolean)}
+     */
+    public Submission submit(InputStream in, String originalFilename, boolean incremental) throws IOException {
+        return schedule(salesImportService.registerSpooled(in, originalFilename, incremental), false);
+    }
+
+    /**
+     * Queues a ZIP or gzip upload; progress is reported on the archive's row.
+     */
+    public Submission submitArchive(InputStream in, String originalFilename) throws IOException {
+        return schedule(salesArchiveImportService.registerSpooled(in, originalFilename), true);
+    }
+
+    private Submission schedule(SalesImportService.SpooledRegistration spooled, boolean archive) throws IOException {
+        SpooledUpload upload = spooled.upload();
+        try {
+            SalesImportTracker.Registration registration = spooled.registration();
+            SalesImportEntity salesImport = registration.salesImport();
+            if (registration.duplicate()) {
+                upload.delete();
+                return new Submission(salesImportTracker.status(salesImport.id()), false);
+            }
+
+            try {
+                executor.execute(new ImportTask(salesImport, upload, archive));
+            } catch (RejectedExecutionException ex) {
+                salesImportTracker.failed(salesImport.id(), committedRows(salesImport));
+                throw ex;
+            }
+            return new Submission(salesImportTracker.status(salesImport.id()), true);
+
+        } catch (IOException | RuntimeException ex) {
+            upload.delete();
+            throw ex;
+        }
+    }
+
+    /**
+     * Imports still PROCESSING at startup were interrupted by a shutdown or crash;
+     * marking them FAILED lets a re-upload resume them from their checkpoint.
+     */
+    @EventListener
+    void onStartup(StartupEvent event) {
+        long interrupted = salesImportTracker.failInterrupted();
+        if (interrupted > 0) {
+            LOG.warn("Marked {} interrupted sales import(s) as FAILED", interrupted);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        List<Runnable> pending = executor.shutdownNow();
+        for (Runnable r : pending) {
+            if (r instanceof ImportTask task) {
+                salesImportTracker.failed(task.salesImport.id(), committedRows(task.salesImport));
+                deleteQuietly(task.upload);
+            }
+        }
+    }
+
+    private static int committedRows(SalesImportEntity salesImport) {
+        return salesImport.processedLines() == null ? 0 : salesImport.processedLines();
+    }
+
+    private static void deleteQuietly(SpooledUpload upload) {
+        try {
+            upload.delete();
+        } catch (IOException ex) {
+            LOG.warn("Unable to delete spooled sales import {}", upload.path(), ex);
+        }
+    }
+
+    private final class ImportTask implements Runnable {
+
+        private final SalesImportEntity salesImport;
+        private final SpooledUpload upload;
+        private final boolean archive;
+
+        private ImportTask(SalesImportEntity salesImport, SpooledUpload upload, boolean archive) {
+            this.salesImport = salesImport;
+            this.upload = upload;
+            this.archive = archive;
+        }
+
+        @Override
+        public void run() {
+            if (archive) {
+                try {
+                    salesArchiveImportService.importRegistered(salesImport, upload);
+                } catch (RuntimeException ex) {
+                    // already recorded as FAILED by SalesArchiveImportService
+                    LOG.error("Sales archive import id={} failed", salesImport.id(), ex);
+                } finally {
+                    deleteQuietly(upload);
+                }
+                return;
+            }
+
+            try (InputStream in = upload.open()) {
+                salesImportService.importRegistered(salesImport, in);
+            } catch (IOException ex) {
+                salesImportTracker.failed(salesImport.id(), committedRows(salesImport));
+                LOG.error("Sales import id={} could not read its spooled upload", salesImport.id(), ex);
+            } catch (RuntimeException ex) {
+                // already recorded as FAILED by SalesImportService
+                LOG.error("Sales import id={} failed", salesImport.id(), ex);
+            } finally {
+                deleteQuietly(upload);
+            }
+        }
+    }
+
+    /**
+     * @param queued false when the upload was a duplicate and nothing was scheduled
+     */
+    public record Submission(SalesImportStatusView status, boolean queued) {}
+}
@@ -1,272 +1,591 @@
 package org.example.domain.service;
 
-import io.micronaut.transaction.annotation.Transactional;
+import io.micronaut.transaction.TransactionOperations;
 import jakarta.inject.Singleton;
-import org.example.domain.Location;
-import org.example.domain.MovementType;
+import org.example.config.SalesImportConfiguration;
 import org.example.domain.SalesImportStatus;
 import org.example.domain.dto.SalesImportResult;
-import org.example.persistence.entity.MovementEntity;
-import org.example.persistence.entity.ProductEntity;
+import org.example.domain.service.SalesImportApplier.ApplyResult;
+import org.example.domain.service.SalesImportApplier.ProgressListener;
 import org.example.persistence.entity.SalesImportEntity;
-import org.example.persistence.repo.MovementRepository;
-import org.example.persistence.repo.ProductRepository;
-import org.example.persistence.repo.SalesImportRepository;
-import org.example.persistence.repo.StockRepository;
-
+import org.example.persistence.repo.MovementSearchOperations;
+import org.example.persistence.repo.MovementSearchOperations.SalesImportTotals;
+import org.example.persistence.repo.SalesImportPartitionOperations;
+import org.example.persistence.repo.SalesImportPartitionOperations.CommittedPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
-import java.time.Instant;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Singleton
 public class SalesImportService {
 
-    private final ProductRepository productRepository;
-    private final StockRepository stockRepository;
-    private final MovementRepository movementRepository;
-    private final SalesImportRepository salesImportRepository;
-
-    public SalesImportService(ProductRepository productRepository,
-                              StockRepository stockRepository,
-                              MovementRepository movementRepository,
-                              SalesImportRepository salesImportRepository) {
-        this.productRepository = productRepository;
-        this.stockRepository = stockRepository;
-        this.movementRepository = movementRepository;
-        this.salesImportRepository = salesImportRepository;
+    private static final Logger LOG = LoggerFactory.getLogger(SalesImportService.class);
+
+    /**
+     * Earlier imports of the same file name an incremental upload is checked against.
+     */
+    private static final int MAX_BASE_CANDIDATES = 8;
+    private static final int SKIP_BUFFER_SIZE = 64 * 1024;
+
+    private final SalesImportTracker salesImportTracker;
+    private final SalesImportApplier salesImportApplier;
+    private final SalesImportPartitionOperations partitionOperations;
+    private final MovementSearchOperations movementSearchOperations;
+    private final ProductLookupCache productLookupCache;
+    private final SalesImportConfiguration configuration;
+    private final TransactionOperations<Connection> transactionOperations;
+
+    public SalesImportService(SalesImportTracker salesImportTracker,
+                              SalesImportApplier salesImportApplier,
+                              SalesImportPartitionOperations partitionOperations,
+                              MovementSearchOperations movementSearchOperations,
+                              ProductLookupCache productLookupCache,
+                              SalesImportConfiguration configuration,
+                              TransactionOperations<Connection> transactionOperations) {
+        this.salesImportTracker = salesImportTracker;
+        this.salesImportApplier = salesImportApplier;
+        this.partitionOperations = partitionOperations;
+        this.movementSearchOperations = movementSearchOperations;
+        this.productLookupCache = productLookupCache;
+        this.configuration = configuration;
+        this.transactionOperations = transactionOperations;
     }
 
-    @Transactional
     public SalesImportResult importCsv(byte[] fileBytes, String originalFilename) {
         if (fileBytes == null || fileBytes.length == 0) {
             throw new IllegalArgumentException("CSV file is empty");
         }
+        return importCsv(new ByteArrayInputStream(fileBytes), originalFilename);
+    }
 
-        String sha = sha256Hex(fileBytes);
+    public SalesImportResult importCsv(InputStream in, String originalFilename) {
+        return importCsv(in, originalFilename, false);
+    }
 
-        Optional<SalesImportEntity> existing = salesImportRepository.findBySha256(sha);
-        if (existing.isPresent()) {
-            SalesImportEntity e = existing.get();
-            return new SalesImportResult(
-                    e.id(),
-                    SalesImportStatus.SKIPPED_DUPLICATE.name(),
-                    safeInt(e.totalLines()),
-                    safeInt(e.processedLines()),
-                    0,
-                    0,
-                    0L,
-                    0L,
-                    e.sha256()
-            );
+    /**
+     * Streams the upload once: the SHA-256 is computed while rows are parsed and
+     * folded into the per-SKU totals, so the raw text is never held in memory.
+     * In chunked or incremental mode the hash must be known before the first
+     * commit, so the upload is spooled to a temp file first.
+     *
+     * @param incremental if the upload is an append-only extension of an earlier
+     *                    successful import of the same file name, apply only the
+     *                    rows after it
+     */
+    public SalesImportResult importCsv(InputStream in, String originalFilename, boolean incremental) {
+        if (incremental || configuration.getChunkRows() > 0) {
+            return importSpooled(in, originalFilename, incremental);
         }
 
-        ParsedCsv parsed = parseCsv(new String(fileBytes, StandardCharsets.UTF_8));
-        int rowsRead = parsed.rowsRead;
-        int rowsValid = parsed.rowsValid;
+        MessageDigest md = newSha256();
+        ParsedCsv parsed = parseCsv(in, md);
 
-        SalesImportEntity saved = salesImportRepository.save(new SalesImportEntity(
-                null,
-                sha,
-                safeFilename(originalFilename),
-                SalesImportStatus.PROCESSING,
-                rowsRead,
-                0,
-                Instant.now()
-        ));
+        SalesImportTracker.Registration registration = salesImportTracker.register(
+                parsed.sha256, safeFilename(originalFilename), parsed.summary.rowsRead(), false,
+                parsed.summary.bytes(), null, null);
+        if (registration.duplicate()) {
+            return skippedDuplicate(registration.salesImport());
+        }
 
-        int missingSkus = 0;
-        int processedSkus = 0;
-        long totalQtyRequested = parsed.totalQtyRequested;
-        long totalQtyApplied = 0;
+        return applyWhole(registration.salesImport(), parsed);
+    }
 
+    /**
+     * Runs an import whose {@code sales_import} row was registered up front,
+     * e.g. by {@link SalesImportJobs} when the upload was accepted. Imports that
+     * already have a checkpoint continue after it; incremental imports skip the
+     * bytes of their base import, hashing them only.
+     */
+    public SalesImportResult importRegistered(SalesImportEntity salesImport, InputStream in) {
+        int checkpoint = safeInt(salesImport.checkpointLine());
+        MessageDigest md = newSha256();
         try {
-            for (Map.Entry<String, Long> entry : parsed.qtyBySku.entrySet()) {
-                String sku = entry.getKey();
-                long qtyRequestedForSku = entry.getValue();
+            if (salesImport.baseImportId() != null) {
+                skipInto(in, md, salesImportTracker.get(salesImport.baseImportId()).byteLength());
+            }
+        } catch (IOException ex) {
+            salesImportTracker.failed(salesImport.id(), safeInt(salesImport.processedLines()));
+            throw new UncheckedIOException("Unable to read CSV upload", ex);
+        } catch (RuntimeException ex) {
+            salesImportTracker.failed(salesImport.id(), safeInt(salesImport.processedLines()));
+            throw ex;
+        }
 
-                ProductEntity product = productRepository.findBySku(sku).orElse(null);
-                if (product == null) {
-                    missingSkus++;
-                    continue;
-                }
+        if (configuration.getChunkRows() > 0 || checkpoint > 0) {
+            return applyChunked(salesImport, in, md, checkpoint);
+        }
 
-                long remaining = qtyRequestedForSku;
-                long appliedForSku = 0;
-
-                long takenShop = takeWithRetry(product.id(), Location.SHOPFLOOR, remaining);
-                if (takenShop > 0) {
-                    remaining -= takenShop;
-                    appliedForSku += takenShop;
-
-                    movementRepository.save(new MovementEntity(
-                            null,
-                            product.id(),
-                            MovementType.SALE_IMPORT,
-                            Location.SHOPFLOOR,
-                            null,
-                            safeToInt(takenShop),
-                            Instant.now(),
-                            "sale import: " + safeFilename(originalFilename),
-                            saved.id()
-                    ));
-                }
+        ParsedCsv parsed;
+        try {
+            parsed = parseCsv(in, md);
+            requireSameFile(salesImport, parsed.sha256);
+        } catch (RuntimeException ex) {
+            salesImportTracker.failed(salesImport.id(), 0);
+            throw ex;
+        }
+        return applyWhole(salesImport, parsed);
+    }
 
-                if (remaining > 0) {
-                    long takenBack = takeWithRetry(product.id(), Location.BACKROOM, remaining);
-                    if (takenBack > 0) {
-                        remaining -= takenBack;
-                        appliedForSku += takenBack;
-
-                        movementRepository.save(new MovementEntity(
-                                null,
-                                product.id(),
-                                MovementType.SALE_IMPORT,
-                                Location.BACKROOM,
-                                null,
-                                safeToInt(takenBack),
-                                Instant.now(),
-                                "sale import: " + safeFilename(originalFilename),
-                                saved.id()
-                        ));
-                    }
-                }
+    /**
+     * Spools the upload and registers it. In incremental mode the latest
+     * successful imports of the same file name are checked, in the same pass,
+     * for one whose bytes are a prefix of the upload; the longest such import
+     * becomes the base and only the rest of the upload is imported.
+     * The caller owns the spooled file unless this throws.
+     */
+    SpooledRegistration registerSpooled(InputStream in, String originalFilename, boolean incremental)
+            throws IOException {
+        String filename = safeFilename(originalFilename);
+        List<SalesImportEntity> candidates = incremental
+                ? salesImportTracker.latestSucceeded(filename, MAX_BASE_CANDIDATES)
+                : List.of();
+
+        SpooledUpload upload = SpooledUpload.spool(in,
+                candidates.stream().mapToLong(SalesImportEntity::byteLength).toArray());
+        try {
+            if (upload.bytes() == 0) {
+                throw new IllegalArgumentException("CSV file is empty");
+            }
 
-                if (appliedForSku > 0) {
-                    processedSkus++;
-                    totalQtyApplied += appliedForSku;
+            SalesImportEntity base = null;
+            SpooledUpload.Prefix basePrefix = null;
+            for (int i = 0; i < candidates.size(); i++) {
+                SpooledUpload.Prefix prefix = upload.prefixes().get(i);
+                if (prefix != null && prefix.sha256().equals(candidates.get(i).sha256())
+                        && (basePrefix == null || prefix.length() > basePrefix.length())) {
+                    base = candidates.get(i);
+                    basePrefix = prefix;
                 }
             }
+            if (basePrefix != null && !basePrefix.endsAtLineBreak()) {
+                throw new IllegalArgumentException("Upload extends sales import id=" + base.id()
+                        + " in the middle of a row");
+            }
+            if (incremental && base == null) {
+                LOG.info("Upload {} extends no earlier import, importing it whole", filename);
+            }
 
-            SalesImportEntity updated = new SalesImportEntity(
-                    saved.id(),
-                    saved.sha256(),
-                    saved.originalFilename(),
-                    SalesImportStatus.SUCCESS,
-                    rowsRead,
-                    rowsValid,
-                    saved.createdAt()
-            );
-            salesImportRepository.update(updated);
+            int expectedLines = upload.estimatedLines() - (basePrefix == null ? 0 : basePrefix.lines());
+            SalesImportTracker.Registration registration = salesImportTracker.register(
+                    upload.sha256(), filename, expectedLines, true, upload.bytes(), base == null ? null : base.id(), null);
+            return new SpooledRegistration(upload, registration);
+        } catch (RuntimeException ex) {
+            upload.delete();
+            throw ex;
+        }
+    }
 
-            return new SalesImportResult(
-                    updated.id(),
-                    updated.status().name(),
-                    rowsRead,
-                    rowsValid,
-                    missingSkus,
-                    processedSkus,
-                    totalQtyRequested,
-                    totalQtyApplied,
-                    updated.sha256()
-            );
+    private SalesImportResult importSpooled(InputStream in, String originalFilename, boolean incremental) {
+        SpooledRegistration spooled;
+        try {
+            spooled = registerSpooled(in, originalFilename, incremental);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to read CSV upload", ex);
+        }
 
+        SpooledUpload upload = spooled.upload();
+        try {
+            SalesImportTracker.Registration registration = spooled.registration();
+            if (registration.duplicate()) {
+                return skippedDuplicate(registration.salesImport());
+            }
+
+            try (InputStream source = upload.open()) {
+                return importRegistered(registration.salesImport(), source);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to read spooled CSV upload", ex);
+        } finally {
+            try {
+                upload.delete();
+            } catch (IOException ex) {
+                LOG.warn("Unable to delete spooled sales import {}", upload.path(), ex);
+            }
+        }
+    }
+
+    /**
+     * All stock changes and the SUCCESS status commit in one transaction.
+     */
+    private SalesImportResult applyWhole(SalesImportEntity salesImport, ParsedCsv parsed) {
+        Long importId = salesImport.id();
+        int rowsRead = parsed.summary.rowsRead();
+        int rowsValid = parsed.summary.rowsValid();
+        String note = "sale import: " + salesImport.originalFilename();
+
+        salesImportTracker.started(importId);
+
+        ApplyResult applied;
+        try {
+            applied = applyAndCommit(parsed.qtyBySku, importId, 0, note,
+                    (skusDone, skusTotal) -> salesImportTracker.progress(
+                            importId, (int) ((long) rowsValid * skusDone / Math.max(1, skusTotal))),
+                    () -> salesImportTracker.succeeded(importId, rowsRead, rowsValid));
         } catch (RuntimeException ex) {
-            SalesImportEntity failed = new SalesImportEntity(
-                    saved.id(),
-                    saved.sha256(),
-                    saved.originalFilename(),
-                    SalesImportStatus.FAILED,
-                    rowsRead,
-                    0,
-                    saved.createdAt()
-            );
-            salesImportRepository.update(failed);
+            salesImportTracker.failed(importId, 0);
             throw ex;
         }
-    }
 
-    private long takeWithRetry(Long productId, Location location, long qty) {
-        if (qty <= 0) return 0;
+        return new SalesImportResult(
+                importId,
+                SalesImportStatus.SUCCESS.name(),
+                rowsRead,
+                rowsValid,
+                applied.missingSkus(),
+                applied.processedSkus(),
+                parsed.summary.totalQtyRequested(),
+                applied.totalQuantityApplied(),
+                salesImport.sha256()
+        );
+    }
 
-        for (int i = 0; i < 3; i++) {
-            int current = stockRepository.findByProductIdAndLocation(productId, location)
-                    .map(s -> s.quantity() == null ? 0 : s.quantity())
-                    .orElse(0);
+    /**
+     * Commits every {@code chunk-rows} valid rows together with a checkpoint, so
+     * stock row locks are held for one chunk only and a failure keeps the work
+     * already committed. Rows up to {@code checkpoint} are not applied again.
+     * <p>
+     * The result covers the whole file whatever the chunk size and however
+     * many runs it took: SKUs are counted once across chunks, the requested
+     * quantity includes the rows before the checkpoint, and the applied totals
+     * are read back from the import's movements.
+     */
+    private SalesImportResult applyChunked(SalesImportEntity salesImport, InputStream in, MessageDigest md,
+                                           int checkpoint) {
+        Long importId = salesImport.id();
+        int chunkRows = configuration.getChunkRows() > 0 ? configuration.getChunkRows() : configuration.getBatchSize();
+        String note = "sale import: " + salesImport.originalFilename();
+
+        Chunk chunk = new Chunk(safeInt(salesImport.processedLines()), checkpoint);
+        Set<String> skus = new HashSet<>();
+        salesImportTracker.started(importId);
 
-            if (current <= 0) return 0;
+        try {
+            SalesCsvReader.Summary summary = SalesCsvReader.read(in, md, 0, (line, sku, qty) -> {
+                skus.add(sku);
+                // applied by an earlier run, read again only for the totals
+                if (line <= checkpoint) return;
+                chunk.add(sku, qty);
+                if (chunk.rows == chunkRows) {
+                    commitChunk(importId, note, chunk, line);
+                }
+            });
+            requireSameFile(salesImport, toHex(md.digest()));
 
-            long toTake = Math.min((long) current, qty);
+            applyAndCommit(chunk.qtyBySku, importId, chunk.checkpointLine, note,
+                    ProgressListener.NONE,
+                    () -> salesImportTracker.succeeded(importId, summary.rowsRead(), summary.rowsValid()));
+            SalesImportTotals applied = movementSearchOperations.salesImportTotals(importId);
 
-            // atomiczny update z warunkiem "quantity >= qty"
-            long changed = stockRepository.decreaseQuantityIfEnough(productId, location, toTake);
-            if (changed > 0) return toTake;
+            return new SalesImportResult(
+                    importId,
+                    SalesImportStatus.SUCCESS.name(),
+                    summary.rowsRead(),
+                    summary.rowsValid(),
+                    countMissing(skus),
+                    applied.products(),
+                    summary.totalQtyRequested(),
+                    applied.quantity(),
+                    salesImport.sha256()
+            );
+        } catch (RuntimeException ex) {
+            salesImportTracker.failed(importId, chunk.committedRows);
+            throw ex;
         }
+    }
 
-        return 0;
+    private void commitChunk(Long importId, String note, Chunk chunk, int checkpointLine) {
+        int committedRows = chunk.committedRows + chunk.rows;
+        applyAndCommit(chunk.qtyBySku, importId, chunk.checkpointLine, note,
+                ProgressListener.NONE, () -> salesImportTracker.checkpoint(importId, checkpointLine, committedRows));
+        chunk.committed(committedRows, checkpointLine);
     }
 
-    private static ParsedCsv parseCsv(String text) {
-        String[] lines = text.split("\\R");
-        Map<String, Long> qtyBySku = new LinkedHashMap<>();
+    /**
+     * @return how many of the SKUs match no product
+     */
+    int countMissing(Set<String> skus) {
+        int batchSize = Math.max(1, configuration.getBatchSize());
+        int missing = 0;
+        List<String> batch = new ArrayList<>(Math.min(batchSize, skus.size()));
+        for (String sku : skus) {
+            batch.add(sku);
+            if (batch.size() == batchSize) {
+                missing += batch.size() - productLookupCache.idsBySku(batch).size();
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            missing += batch.size() - productLookupCache.idsBySku(batch).size();
+        }
+        return missing;
+    }
 
-        int rowsRead = 0;
-        int rowsValid = 0;
-        long totalQtyRequested = 0;
+    /**
+     * Applies the quantities and runs {@code inCommit} so that both commit
+     * together: in one transaction, or - with {@code parallelism > 1} - in one
+     * transaction per SKU hash partition followed by one transaction for
+     * {@code inCommit}. Partitions commit independently and never wait for each
+     * other while holding row locks; each records itself in
+     * {@code sales_import_partition}, so a retry of the same chunk skips the
+     * partitions that already committed. Partitions that fail are retried up to
+     * {@code partitionRetries} times here before the import fails with the
+     * others left committed.
+     *
+     * @param chunkStart checkpoint the quantities start after, 0 for a whole import
+     */
+    ApplyResult applyAndCommit(Map<String, Long> qtyBySku, Long importId, int chunkStart, String note,
+                               ProgressListener listener, Runnable inCommit) {
+        List<CommittedPartition> committed = partitionOperations.find(importId, chunkStart);
+        int partitions = committed.isEmpty()
+                ? Math.min(configuration.getParallelism(), qtyBySku.size())
+                : committed.get(0).partitions();
+        if (partitions <= 1) {
+            return transactionOperations.executeWrite(status -> {
+                ApplyResult result = salesImportApplier.apply(qtyBySku, importId, note, listener);
+                inCommit.run();
+                return result;
+            });
+        }
 
-        for (String rawLine : lines) {
-            String line = rawLine == null ? "" : rawLine.trim();
-            if (line.isBlank()) continue;
+        List<Map<String, Long>> parts = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            parts.add(new LinkedHashMap<>());
+        }
+        for (Map.Entry<String, Long> entry : qtyBySku.entrySet()) {
+            parts.get(Math.floorMod(entry.getKey().hashCode(), partitions)).put(entry.getKey(), entry.getValue());
+        }
 
-            rowsRead++;
+        ApplyResult[] results = new ApplyResult[partitions];
+        for (CommittedPartition c : committed) {
+            if (c.partitions() != partitions || !c.contentSha256().equals(contentSha256(parts.get(c.partitionNo())))) {
+                throw new IllegalStateException("Sales import id=" + importId
+                        + " was partly committed from different rows after line " + chunkStart);
+            }
+            results[c.partitionNo()] = new ApplyResult(c.missingSkus(), c.processedSkus(), c.quantityApplied());
+        }
 
-            String[] parts = line.split("[,;]");
-            if (parts.length < 2) continue;
+        int skusTotal = qtyBySku.size();
+        AtomicInteger skusDone = new AtomicInteger();
+        for (int i = 0; i < partitions; i++) {
+            if (results[i] != null) skusDone.addAndGet(parts.get(i).size());
+        }
+        for (int attempt = 0; ; attempt++) {
+            RuntimeException failure = applyPartitions(parts, results, importId, chunkStart, note,
+                    listener, skusDone, skusTotal);
+            if (failure == null) {
+                break;
+            }
+            if (attempt >= configuration.getPartitionRetries()) {
+                throw failure;
+            }
+            LOG.warn("Sales import id={}: retrying the partitions that failed after line {}",
+                    importId, chunkStart, failure);
+        }
 
-            String sku = parts[0].trim();
-            String qtyStr = parts[1].trim();
+        transactionOperations.executeWrite(status -> {
+            inCommit.run();
+            partitionOperations.clear(importId);
+            return null;
+        });
 
-            if (sku.equalsIgnoreCase("sku") || qtyStr.equalsIgnoreCase("quantity")) continue;
-            if (sku.isBlank()) continue;
+        ApplyResult total = ApplyResult.EMPTY;
+        for (ApplyResult result : results) {
+            total = total.plus(result);
+        }
+        return total;
+    }
+
+    /**
+     * Applies each partition without a result yet in its own transaction, all
+     * concurrently, and fills in the results of those that committed.
+     *
+     * @return the first failure, null if every partition committed
+     */
+    private RuntimeException applyPartitions(List<Map<String, Long>> parts, ApplyResult[] results, Long importId,
+                                             int chunkStart, String note, ProgressListener listener,
+                                             AtomicInteger skusDone, int skusTotal) {
+        int partitions = parts.size();
+        List<Future<ApplyResult>> futures = new ArrayList<>(partitions);
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < partitions; i++) {
+                if (results[i] != null) {
+                    continue;
+                }
+                int partitionNo = i;
+                Map<String, Long> part = parts.get(i);
+                futures.add(pool.submit(() -> {
+                    ApplyResult result = transactionOperations.executeWrite(status -> {
+                        ApplyResult r = salesImportApplier.apply(part, importId, note, ProgressListener.NONE);
+                        partitionOperations.record(importId, chunkStart, new CommittedPartition(
+                                partitionNo, partitions, contentSha256(part),
+                                r.missingSkus(), r.processedSkus(), r.totalQuantityApplied()));
+                        return r;
+                    });
+                    // outside the partition's transaction, so progress never holds a second connection
+                    listener.batchApplied(skusDone.addAndGet(part.size()), skusTotal);
+                    results[partitionNo] = result;
+                    return result;
+                }));
+            }
+        }
 
-            long qty;
+        RuntimeException failure = null;
+        for (Future<ApplyResult> future : futures) {
             try {
-                qty = Long.parseLong(qtyStr);
-            } catch (NumberFormatException ex) {
-                continue;
+                future.get();
+            } catch (ExecutionException ex) {
+                if (failure == null) {
+                    failure = ex.getCause() instanceof RuntimeException re
+                            ? re
+                            : new IllegalStateException(ex.getCause());
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while applying sales import id=" + importId, ex);
             }
-            if (qty <= 0) continue;
+        }
+        return failure;
+    }
 
-            rowsValid++;
-            totalQtyRequested += qty;
-            qtyBySku.merge(sku, qty, Long::sum);
+    /**
+     * SHA-256 of a partition's (sku, qty) pairs in SKU order, so the same rows
+     * give the same value whatever order they were read in.
+     */
+    static String contentSha256(Map<String, Long> part) {
+        MessageDigest md = newSha256();
+        for (Map.Entry<String, Long> entry : new TreeMap<>(part).entrySet()) {
+            md.update(entry.getKey().getBytes(StandardCharsets.UTF_8));
+            md.update((byte) '\t');
+            md.update(Long.toString(entry.getValue()).getBytes(StandardCharsets.UTF_8));
+            md.update((byte) '\n');
         }
+        return toHex(md.digest());
+    }
 
-        return new ParsedCsv(qtyBySku, rowsRead, rowsValid, totalQtyRequested);
+    private static void requireSameFile(SalesImportEntity salesImport, String sha256) {
+        if (!sha256.equals(salesImport.sha256())) {
+            throw new IllegalStateException("Upload does not match sales import id=" + salesImport.id());
+        }
     }
 
-    private static String sha256Hex(byte[] bytes) {
+    static SalesImportResult skippedDuplicate(SalesImportEntity e) {
+        return new SalesImportResult(
+                e.id(),
+                SalesImportStatus.SKIPPED_DUPLICATE.name(),
+                safeInt(e.totalLines()),
+                safeInt(e.processedLines()),
+                0,
+                0,
+                0L,
+                0L,
+                e.sha256()
+        );
+    }
+
+    private static ParsedCsv parseCsv(InputStream in, MessageDigest md) {
+        Map<String, Long> qtyBySku = new LinkedHashMap<>();
+
+        SalesCsvReader.Summary summary = SalesCsvReader.read(in, md, 0,
+                (line, sku, qty) -> qtyBySku.merge(sku, qty, Long::sum));
+
+        return new ParsedCsv(qtyBySku, summary, toHex(md.digest()));
+    }
+
+    /**
+     * Reads the first {@code length} bytes of {@code in} into {@code md} only.
+     */
+    private static void skipInto(InputStream in, MessageDigest md, long length) throws IOException {
+        byte[] buf = new byte[SKIP_BUFFER_SIZE];
+        long remaining = length;
+        while (remaining > 0) {
+            int n = in.read(buf, 0, (int) Math.min(buf.length, remaining));
+            if (n < 0) {
+                throw new IllegalStateException("Upload is shorter than the import it extends");
+            }
+            md.update(buf, 0, n);
+            remaining -= n;
+        }
+    }
+
+    static MessageDigest newSha256() {
         try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            byte[] digest = md.digest(bytes);
-            StringBuilder sb = new StringBuilder(digest.length * 2);
-            for (byte b : digest) sb.append(String.format("%02x", b));
-            return sb.toString();
-        } catch (Exception ex) {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
             throw new RuntimeException("Unable to calculate sha256", ex);
         }
     }
 
-    private static String safeFilename(String name) {
-        if (name == null || name.isBlank()) return "unknown.csv";
-        return name.replaceAll("[\\r\\n\\t]", " ").trim();
+    static String toHex(byte[] digest) {
+        StringBuilder sb = new StringBuilder(digest.length * 2);
+        for (byte b : digest) sb.append(String.format("%02x", b));
+        return sb.toString();
     }
 
-    private static int safeToInt(long qty) {
-        if (qty > Integer.MAX_VALUE) throw new IllegalArgumentException("Quantity exceeds Integer.MAX_VALUE");
-        return (int) qty;
+    static String safeFilename(String name) {
+        if (name == null || name.isBlank()) return "unknown.csv";
+        return name.replaceAll("[\\r\\n\\t]", " ").trim();
     }
 
     private static int safeInt(Integer v) {
         return v == null ? 0 : v;
     }
 
+    /**
+     * @param upload deleted by the caller once the import is done
+     */
+    record SpooledRegistration(
+            SpooledUpload upload,
+            SalesImportTracker.Registration registration
+    ) {}
+
     private record ParsedCsv(
             Map<String, Long> qtyBySku,
-            int rowsRead,
-            int rowsValid,
-            long totalQtyRequested
+            SalesCsvReader.Summary summary,
+            String sha256
     ) {}
+
+    private static final class Chunk {
+
+        final Map<String, Long> qtyBySku = new LinkedHashMap<>();
+        int rows;
+        int committedRows;
+        int checkpointLine;
+
+        Chunk(int committedRows, int checkpointLine) {
+            this.committedRows = committedRows;
+            this.checkpointLine = checkpointLine;
+        }
+
+        void add(String sku, long qty) {
+            qtyBySku.merge(sku, qty, Long::sum);
+            rows++;
+        }
+
+        void committed(int committedRows, int checkpointLine) {
+            this.committedRows = committedRows;
+            this.checkpointLine = checkpointLine;
+            this.qtyBySku.clear();
+            this.rows = 0;
+        }
+    }
 }
@@ -0,0 +1,188 @@
+package org.example.domain.service;
+
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.transaction.TransactionDefinition;
+import io.micronaut.transaction.annotation.Transactional;
+import jakarta.inject.Singleton;
+import org.example.domain.SalesImportStatus;
+import org.example.domain.dto.SalesImportStatusView;
+import org.example.domain.exception.NotFoundException;
+import org.example.persistence.entity.SalesImportEntity;
+import org.example.persistence.repo.SalesImportPartitionOperations;
+import org.example.persistence.repo.SalesImportPartitionOperations.PartitionProgress;
+import org.example.persistence.repo.SalesImportRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Owns the lifecycle of a {@code sales_import} row. Progress and failure are
+ * written in their own transactions so they are visible (and survive a rollback)
+ * while the stock changes of the import are still uncommitted.
+ */
+@Singleton
+public class SalesImportTracker {
+
+    private final SalesImportRepository salesImportRepository;
+    private final SalesImportPartitionOperations partitionOperations;
+
+    public SalesImportTracker(SalesImportRepository salesImportRepository,
+                              SalesImportPartitionOperations partitionOperations) {
+        this.salesImportRepository = salesImportRepository;
+        this.partitionOperations = partitionOperations;
+    }
+
+    /**
+     * Registers an upload by its SHA-256. A previous FAILED import of the same
+     * file is reused (keeping its checkpoint); anything else with the same hash
+     * is a duplicate.
+     *
+     * @param resumable     whether the caller can skip rows up to a checkpoint; if
+     *                      not, a partially committed import is rejected
+     * @param baseImportId  import this upload extends, for an incremental import;
+     *                      a reused FAILED import only switches base while it has
+     *                      no checkpoint
+     * @param parentImportId archive import this upload is an entry of
+     */
+    @Transactional
+    public Registration register(String sha256, String originalFilename, int expectedLines, boolean resumable,
+                                 long byteLength, @Nullable Long baseImportId, @Nullable Long parentImportId) {
+        Optional<SalesImportEntity> existing = salesImportRepository.findBySha256(sha256);
+        if (existing.isPresent()) {
+            SalesImportEntity e = existing.get();
+            if (e.status() != SalesImportStatus.FAILED) {
+                return new Registration(e, true);
+            }
+            int checkpoint = e.checkpointLine() == null ? 0 : e.checkpointLine();
+            if (checkpoint > 0 && !resumable) {
+                throw new IllegalStateException("Sales import id=" + e.id() + " is committed up to line "
+                        + checkpoint + "; enable chunked imports or upload asynchronously to resume it");
+            }
+            boolean requeued = salesImportRepository.requeueFailed(e.id(), expectedLines, baseImportId, parentImportId) > 0;
+            return new Registration(requeued ? get(e.id()) : e, !requeued);
+        }
+
+        SalesImportEntity saved = salesImportRepository.save(new SalesImportEntity(
+                null,
+                sha256,
+                originalFilename,
+                SalesImportStatus.PROCESSING,
+                expectedLines,
+                0,
+                Instant.now(),
+                null,
+                null,
+                0,
+                byteLength,
+                baseImportId,
+                parentImportId
+        ));
+        return new Registration(saved, false);
+    }
+
+    /**
+     * Most recent successful imports of a file name, newest first: the imports an
+     * incremental upload of that file may extend.
+     */
+    public List<SalesImportEntity> latestSucceeded(String originalFilename, int limit) {
+        return salesImportRepository.findLatestSucceeded(originalFilename, limit);
+    }
+
+    public SalesImportEntity get(Long importId) {
+        return salesImportRepository.findById(importId)
+                .orElseThrow(() -> new NotFoundException("Sales import not found: id=" + importId));
+    }
+
+    @Transactional
+    public void started(Long importId) {
+        salesImportRepository.markStarted(importId);
+    }
+
+    @Transactional(propagation = TransactionDefinition.Propagation.REQUIRES_NEW)
+    public void progress(Long importId, int processedLines) {
+        salesImportRepository.updateProcessedLines(importId, processedLines);
+    }
+
+    /**
+     * Joins the caller's transaction so the checkpoint commits together with the
+     * stock changes of the chunk.
+     */
+    @Transactional
+    public void checkpoint(Long importId, int checkpointLine, int processedLines) {
+        salesImportRepository.updateCheckpoint(importId, checkpointLine, processedLines);
+    }
+
+    /**
+     * Joins the caller's transaction so the status flips together with the stock changes.
+     */
+    @Transactional
+    public void succeeded(Long importId, int totalLines, int processedLines) {
+        salesImportRepository.markSucceeded(importId, totalLines, processedLines);
+    }
+
+    /**
+     * @param processedLines valid rows whose stock changes are committed
+     */
+    @Transactional(propagation = TransactionDefinition.Propagation.REQUIRES_NEW)
+    public void failed(Long importId, int processedLines) {
+        salesImportRepository.markFailed(importId, processedLines);
+    }
+
+    /**
+     * Marks imports left PROCESSING by a previous run of the service as FAILED so
+     * a re-upload resumes them. Assumes a single service instance.
+     */
+    @Transactional
+    public long failInterrupted() {
+        return salesImportRepository.failInterrupted();
+    }
+
+    public SalesImportStatusView status(Long importId) {
+        return toStatusView(get(importId), partitionOperations.progress(importId).orElse(null));
+    }
+
+    static SalesImportStatusView toStatusView(SalesImportEntity e, @Nullable PartitionProgress partitions) {
+        int total = e.totalLines() == null ? 0 : e.totalLines();
+        int processed = e.processedLines() == null ? 0 : e.processedLines();
+
+        long elapsedMillis = 0;
+        if (e.startedAt() != null) {
+            Instant end = e.finishedAt() != null ? e.finishedAt() : Instant.now();
+            elapsedMillis = Math.max(0, Duration.between(e.startedAt(), end).toMillis());
+        }
+
+        Double linesPerSecond = null;
+        Long etaSeconds = null;
+        if (elapsedMillis > 0 && processed > 0) {
+            linesPerSecond = processed * 1000.0 / elapsedMillis;
+            if (e.status() == SalesImportStatus.PROCESSING && total > 0) {
+                etaSeconds = (long) Math.ceil(Math.max(0, total - processed) / linesPerSecond);
+            }
+        }
+
+        return new SalesImportStatusView(
+                e.id(),
+                e.status().name(),
+                e.originalFilename(),
+                total,
+                processed,
+                e.createdAt(),
+                e.startedAt(),
+                e.finishedAt(),
+                elapsedMillis,
+                linesPerSecond,
+                etaSeconds,
+                e.sha256(),
+                e.baseImportId(),
+                partitions == null ? null : partitions.committed(),
+                partitions == null ? null : partitions.partitions()
+        );
+    }
+
+    /**
+     * @param duplicate true when the file was already imported (or is being imported)
+     */
+    public record Registration(SalesImportEntity salesImport, boolean duplicate) {}
+}
@@ -0,0 +1,122 @@
+package org.example.domain.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * An upload copied to a temp file, with its SHA-256 and an estimate of its
+ * line count taken during the copy. Used whenever the hash has to be known
+ * before the rows are applied.
+ *
+ * @param prefixes one entry per requested prefix length, {@code null} where the
+ *                 upload is not longer than that
+ */
+record SpooledUpload(Path path, String sha256, long bytes, int estimatedLines, List<Prefix> prefixes) {
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    static SpooledUpload spool(InputStream in) throws IOException {
+        return spool(in, new long[0]);
+    }
+
+    /**
+     * Also hashes the first {@code prefixLengths[i]} bytes, in the same pass, by
+     * cloning the running digest at each of those offsets.
+     */
+    static SpooledUpload spool(InputStream in, long[] prefixLengths) throws IOException {
+        Path path = Files.createTempFile("sales-import-", ".csv");
+        try (OutputStream out = Files.newOutputStream(path)) {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] buf = new byte[COPY_BUFFER_SIZE];
+            long bytes = 0;
+            int lines = 0;
+            byte last = '\n';
+
+            int[] order = IntStream.range(0, prefixLengths.length).boxed()
+                    .sorted(Comparator.comparingLong(i -> prefixLengths[i]))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            Prefix[] prefixes = new Prefix[prefixLengths.length];
+            int nextPrefix = 0;
+
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                int from = 0;
+                // a prefix equal to the whole upload is the upload itself, not a base it extends
+                while (nextPrefix < order.length && prefixLengths[order[nextPrefix]] < bytes + n) {
+                    long length = prefixLengths[order[nextPrefix]];
+                    int to = (int) Math.max(0, length - bytes);
+                    if (length > 0) {
+                        md.update(buf, from, to - from);
+                        lines += countLines(buf, from, to);
+                        byte end = to > 0 ? buf[to - 1] : last;
+                        prefixes[order[nextPrefix]] = new Prefix(length, hexDigest(clone(md)), lines,
+                                end == '\n' || end == '\r');
+                        from = to;
+                    }
+                    nextPrefix++;
+                }
+
+                md.update(buf, from, n - from);
+                lines += countLines(buf, from, n);
+                out.write(buf, 0, n);
+                last = buf[n - 1];
+                bytes += n;
+            }
+            if (last != '\n') lines++;
+
+            return new SpooledUpload(path, hexDigest(md), bytes, lines, Arrays.asList(prefixes));
+        } catch (IOException | RuntimeException ex) {
+            Files.deleteIfExists(path);
+            throw ex;
+        } catch (NoSuchAlgorithmException ex) {
+            Files.deleteIfExists(path);
+            throw new RuntimeException("Unable to calculate sha256", ex);
+        }
+    }
+
+    InputStream open() throws IOException {
+        return Files.newInputStream(path);
+    }
+
+    void delete() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    private static int countLines(byte[] buf, int from, int to) {
+        int lines = 0;
+        for (int i = from; i < to; i++) {
+            if (buf[i] == '\n') lines++;
+        }
+        return lines;
+    }
+
+    private static MessageDigest clone(MessageDigest md) {
+        try {
+            return (MessageDigest) md.clone();
+        } catch (CloneNotSupportedException ex) {
+            throw new IllegalStateException("SHA-256 digest cannot be cloned", ex);
+        }
+    }
+
+    private static String hexDigest(MessageDigest md) {
+        return HexFormat.of().formatHex(md.digest());
+    }
+
+    /**
+     * @param lines           newlines within the prefix
+     * @param endsAtLineBreak whether the prefix ends with a line break, i.e. the
+     *                        rest of the upload starts on a new row
+     */
+    record Prefix(long length, String sha256, int lines, boolean endsAtLineBreak) {}
+}
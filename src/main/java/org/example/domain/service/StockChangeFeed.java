@@ -0,0 +1,93 @@
+package org.example.domain.service;
+
+import io.micronaut.http.sse.Event;
+import io.micronaut.scheduling.TaskExecutors;
+import io.micronaut.scheduling.TaskScheduler;
+import jakarta.annotation.PostConstruct;
+import jakarta.inject.Named;
+import jakarta.inject.Singleton;
+import org.example.config.StockEventsConfiguration;
+import org.example.domain.dto.StockChange;
+import org.example.domain.dto.StockView;
+import reactor.core.Exceptions;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fans stock changes out to server-sent-event subscribers. The snapshot only
+ * marks the changed products; once per coalescing window their current state
+ * is read from the snapshot and emitted once to all subscribers, so the number
+ * of subscribers costs neither database queries nor extra snapshot reads.
+ * <p>
+ * Each subscriber has a bounded buffer. One that falls behind by more than
+ * that gets a {@code resync} event and its stream ends, so it can reconnect
+ * and reload {@code /api/stocks} instead of the server buffering without limit.
+ */
+@Singleton
+public class StockChangeFeed implements StockSnapshot.ChangeListener {
+
+    private final StockSnapshot stockSnapshot;
+    private final StockEventsConfiguration configuration;
+    private final TaskScheduler taskScheduler;
+
+    private final Map<Long, Boolean> pending = new ConcurrentHashMap<>();
+    private final Sinks.Many<StockChange> sink = Sinks.many().multicast().directBestEffort();
+
+    public StockChangeFeed(StockSnapshot stockSnapshot,
+                           StockEventsConfiguration configuration,
+                           @Named(TaskExecutors.SCHEDULED) TaskScheduler taskScheduler) {
+        this.stockSnapshot = stockSnapshot;
+        this.configuration = configuration;
+        this.taskScheduler = taskScheduler;
+    }
+
+    @PostConstruct
+    void start() {
+        stockSnapshot.addListener(this);
+        Duration window = configuration.getCoalesceWindow();
+        taskScheduler.scheduleWithFixedDelay(window, window, this::flush);
+    }
+
+    public Flux<Event<Object>> subscribe() {
+        return sink.asFlux()
+                .map(change -> Event.<Object>of(change).name(change.lowChanged() ? "low" : "stock"))
+                .onBackpressureBuffer(Math.max(1, configuration.getSubscriberBuffer()), BufferOverflowStrategy.ERROR)
+                .onErrorResume(Exceptions::isOverflow,
+                        ex -> Mono.just(Event.<Object>of(Map.of("reason", "subscriber fell behind")).name("resync")));
+    }
+
+    @Override
+    public void changed(long productId, boolean lowChanged) {
+        pending.merge(productId, lowChanged, Boolean::logicalOr);
+    }
+
+    void flush() {
+        if (sink.currentSubscriberCount() == 0) {
+            pending.clear();
+            return;
+        }
+        for (Long productId : pending.keySet()) {
+            Boolean lowChanged = pending.remove(productId);
+            if (lowChanged == null) continue;
+            stockSnapshot.find(productId).ifPresent(view -> sink.tryEmitNext(toChange(view, lowChanged)));
+        }
+    }
+
+    private static StockChange toChange(StockView view, boolean lowChanged) {
+        return new StockChange(
+                view.productId(),
+                view.backroomQty(),
+                view.shopfloorQty(),
+                view.totalQty(),
+                view.reservedQty(),
+                view.low(),
+                lowChanged
+        );
+    }
+}
@@ -0,0 +1,83 @@
+package org.example.domain.service;
+
+import io.micronaut.context.event.ApplicationEventPublisher;
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.transaction.TransactionOperations;
+import io.micronaut.transaction.TransactionStatus;
+import io.micronaut.transaction.support.TransactionSynchronization;
+import jakarta.inject.Singleton;
+import org.example.domain.event.ProductChangedEvent;
+import org.example.domain.event.StockChangedEvent;
+import org.example.domain.event.StockChangedEvent.StockDelta;
+import org.example.persistence.entity.ProductEntity;
+import org.example.persistence.repo.TransactionSnapshotOperations;
+
+import java.sql.Connection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Publishes product and stock changes once the surrounding transaction has
+ * committed, so listeners never see a change that is later rolled back. Outside
+ * a transaction the event is published right away. Stock events carry the id
+ * of the committing transaction, so the {@link StockSnapshot} can tell whether a
+ * reload has already read them.
+ */
+@Singleton
+public class StockEventPublisher {
+
+    private final ApplicationEventPublisher<StockChangedEvent> stockChangedPublisher;
+    private final ApplicationEventPublisher<ProductChangedEvent> productChangedPublisher;
+    private final TransactionOperations<Connection> transactionOperations;
+    private final TransactionSnapshotOperations transactionSnapshotOperations;
+
+    public StockEventPublisher(ApplicationEventPublisher<StockChangedEvent> stockChangedPublisher,
+                               ApplicationEventPublisher<ProductChangedEvent> productChangedPublisher,
+                               TransactionOperations<Connection> transactionOperations,
+                               TransactionSnapshotOperations transactionSnapshotOperations) {
+        this.stockChangedPublisher = stockChangedPublisher;
+        this.productChangedPublisher = productChangedPublisher;
+        this.transactionOperations = transactionOperations;
+        this.transactionSnapshotOperations = transactionSnapshotOperations;
+    }
+
+    public void stockChanged(List<StockDelta> deltas) {
+        if (deltas.isEmpty()) return;
+        long transactionId = transactionOperations.findTransactionStatus().isPresent()
+                ? transactionSnapshotOperations.currentTransactionId()
+                : 0;
+        stockChanged(deltas, transactionId);
+    }
+
+    /**
+     * For callers whose statement already returned the id of the current
+     * transaction; saves the query {@link #stockChanged(List)} makes for it.
+     */
+    public void stockChanged(List<StockDelta> deltas, long transactionId) {
+        if (deltas.isEmpty()) return;
+        StockChangedEvent event = new StockChangedEvent(List.copyOf(deltas), transactionId);
+        afterCommit(() -> stockChangedPublisher.publishEvent(event));
+    }
+
+    /**
+     * @param previous the product before the change, null when it was created
+     */
+    public void productChanged(@Nullable ProductEntity previous, ProductEntity product) {
+        ProductChangedEvent event = new ProductChangedEvent(previous, product);
+        afterCommit(() -> productChangedPublisher.publishEvent(event));
+    }
+
+    private void afterCommit(Runnable publish) {
+        Optional<? extends TransactionStatus<?>> status = transactionOperations.findTransactionStatus();
+        if (status.isEmpty()) {
+            publish.run();
+            return;
+        }
+        status.get().registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                publish.run();
+            }
+        });
+    }
+}
@@ -1,69 +1,91 @@
 package org.example.domain.service;
 
+import io.micronaut.core.annotation.Nullable;
 import jakarta.inject.Singleton;
-import org.example.domain.Location;
 import org.example.domain.dto.StockView;
-import org.example.persistence.entity.ProductEntity;
-import org.example.persistence.entity.StockEntity;
-import org.example.persistence.repo.ProductRepository;
-import org.example.persistence.repo.StockRepository;
+import org.example.persistence.repo.StockViewOperations;
+import org.example.persistence.repo.StockViewOperations.Sort;
 
-import java.util.*;
-import java.util.stream.Collectors;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
 
 @Singleton
 public class StockService {
 
-    private final ProductRepository productRepository;
-    private final StockRepository stockRepository;
+    public static final int MAX_PAGE_SIZE = 1000;
 
-    public StockService(ProductRepository productRepository,
-                        StockRepository stockRepository) {
-        this.productRepository = productRepository;
-        this.stockRepository = stockRepository;
+    private final StockSnapshot stockSnapshot;
+    private final StockViewOperations stockViewOperations;
+    private final ReservedStock reservedStock;
+
+    public StockService(StockSnapshot stockSnapshot,
+                        StockViewOperations stockViewOperations,
+                        ReservedStock reservedStock) {
+        this.stockSnapshot = stockSnapshot;
+        this.stockViewOperations = stockViewOperations;
+        this.reservedStock = reservedStock;
     }
 
     public List<StockView> getStocksView(Optional<String> query) {
-        List<ProductEntity> products = query
-                .map(String::trim)
-                .filter(q -> !q.isBlank())
-                .map(productRepository::search)
-                .orElseGet(productRepository::listActive);
+        return stockSnapshot.view(query);
+    }
 
-        if (products.isEmpty()) {
-            return List.of();
-        }
+    /**
+     * The entries of {@link #getStocksView} whose unreserved total is below
+     * their {@code minTotal}.
+     */
+    public List<StockView> getLowStocksView(Optional<String> query) {
+        return stockSnapshot.lowView(query);
+    }
+
+    /**
+     * One page of the stock view, read from the database in a single query.
+     *
+     * @param cursor {@code nextCursor} of the previous page, null for the first
+     *               page; only valid with the same sort
+     */
+    public Page page(Optional<String> query, boolean lowOnly, Sort sort, @Nullable String cursor, int limit) {
+        int size = Math.clamp(limit, 1, MAX_PAGE_SIZE);
+        String q = query.map(String::trim).filter(s -> !s.isBlank()).orElse(null);
 
-        List<Long> productIds = products.stream().map(ProductEntity::id).toList();
-        List<StockEntity> stocks = stockRepository.findByIdProductIdIn(productIds);
+        Cursor after = cursor == null || cursor.isBlank() ? null : Cursor.decode(cursor);
+        List<StockView> rows = stockViewOperations.page(q, lowOnly, sort,
+                after == null ? null : after.key(),
+                after == null ? null : after.id(),
+                size + 1,
+                reservedStock.reservedByProduct());
 
-        Map<Long, Map<Location, Long>> qtyByProduct = new HashMap<>();
-        for (StockEntity s : stocks) {
-            qtyByProduct
-                    .computeIfAbsent(s.id().productId(), k -> new EnumMap<>(Location.class))
-                    .put(s.id().location(), Long.valueOf(s.quantity()));
+        if (rows.size() <= size) {
+            return new Page(rows, null);
         }
+        List<StockView> items = rows.subList(0, size);
+        StockView last = items.get(size - 1);
+        String key = sort == Sort.SKU ? last.sku() : last.name();
+        return new Page(items, new Cursor(key, last.productId()).encode());
+    }
+
+    /**
+     * @param nextCursor null on the last page
+     */
+    public record Page(List<StockView> items, @Nullable String nextCursor) {}
 
-        return products.stream()
-                .map(p -> {
-                    long backroom = qtyByProduct.getOrDefault(p.id(), Map.of()).getOrDefault(Location.BACKROOM, 0L);
-                    long shopfloor = qtyByProduct.getOrDefault(p.id(), Map.of()).getOrDefault(Location.SHOPFLOOR, 0L);
-                    long total = backroom + shopfloor;
-                    int min = p.minTotal() == null ? 0 : p.minTotal();
-                    boolean low = total < min;
+    private record Cursor(String key, Long id) {
 
-                    return new StockView(
-                            p.id(),
-                            p.sku(),
-                            p.name(),
-                            p.unit(),
-                            p.minTotal(),
-                            (int) backroom,
-                            (int) shopfloor,
-                            (int) total,
-                            low
-                    );
-                })
-                .collect(Collectors.toList());
+        String encode() {
+            byte[] raw = (id + "|" + key).getBytes(StandardCharsets.UTF_8);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+        }
+
+        static Cursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int sep = raw.indexOf('|');
+                return new Cursor(raw.substring(sep + 1), Long.parseLong(raw.substring(0, sep)));
+            } catch (IllegalArgumentException | IndexOutOfBoundsException ex) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor, ex);
+            }
+        }
     }
 }
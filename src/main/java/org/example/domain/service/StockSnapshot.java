@@ -0,0 +1,515 @@
+package org.example.domain.service;
+
+import io.micronaut.runtime.event.annotation.EventListener;
+import io.micronaut.scheduling.annotation.Scheduled;
+import io.micronaut.transaction.TransactionOperations;
+import jakarta.inject.Singleton;
+import org.example.domain.Location;
+import org.example.domain.dto.StockView;
+import org.example.domain.event.ProductChangedEvent;
+import org.example.domain.event.StockChangedEvent;
+import org.example.domain.event.StockChangedEvent.StockDelta;
+import org.example.persistence.entity.ProductEntity;
+import org.example.persistence.entity.StockEntity;
+import org.example.persistence.repo.ProductRepository;
+import org.example.persistence.repo.StockRepository;
+import org.example.persistence.repo.TransactionSnapshotOperations;
+import org.example.persistence.repo.TransactionSnapshotOperations.TxidSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+/**
+ * In-process copy of every product and its stock, so stock reads never touch
+ * the database. Each product owns a slot; quantities are kept per location in
+ * primitive arrays indexed by that slot, and a name-ordered slot list serves
+ * the listings. The active products whose unreserved total (see
+ * {@link ReservedStock}) is below their {@code minTotal} are also kept as a
+ * name-ordered set, updated with every change, so the low-stock listing
+ * costs the number of low products rather than the catalog size. A product
+ * edit moves only that product within the name order, and only when its name
+ * changed.
+ * <p>
+ * The snapshot is loaded on first use and then kept current by the
+ * {@link StockChangedEvent}s and {@link ProductChangedEvent}s published after
+ * commit. A reload reads under one REPEATABLE READ snapshot and remembers it;
+ * events arriving during the read are buffered and replayed on top of it, and
+ * any stock event whose transaction is visible in the remembered snapshot is
+ * skipped, because the read already contains it. Deltas are therefore counted
+ * exactly once, however publishing and reloading interleave. The periodic
+ * reload only picks up changes made outside the application.
+ * <p>
+ * {@link ChangeListener}s are told which products an event changed; a reload
+ * does not notify them.
+ */
+@Singleton
+public class StockSnapshot {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StockSnapshot.class);
+
+    private static final Location[] LOCATIONS = Location.values();
+
+    private static final Comparator<ProductEntity> BY_NAME = Comparator
+            .comparing(ProductEntity::name, String.CASE_INSENSITIVE_ORDER)
+            .thenComparing(ProductEntity::name)
+            .thenComparing(ProductEntity::id);
+
+    private final ProductRepository productRepository;
+    private final StockRepository stockRepository;
+    private final ReservedStock reservedStock;
+    private final TransactionSnapshotOperations transactionSnapshotOperations;
+    private final TransactionOperations<Connection> transactionOperations;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReentrantLock reloadLock = new ReentrantLock();
+
+    // guarded by lock
+    private boolean loaded;
+    private boolean stale;
+    private TxidSnapshot loadedAt;
+    private List<Object> arrivedDuringReload;
+    private int size;
+    private final Map<Long, Integer> slotByProductId = new HashMap<>();
+    private ProductEntity[] products = new ProductEntity[0];
+    private String[] lowerNames = new String[0];
+    private String[] lowerSkus = new String[0];
+    private long[][] quantities = new long[LOCATIONS.length][0];
+    private int[] byName = new int[0];
+    private int[] rankBySlot = new int[0];
+    // ordered by rank; a rank only changes while its slot is out of the set or
+    // together with its neighbours', so the order of the members never changes
+    private final TreeSet<Integer> lowSlots = new TreeSet<>(Comparator.comparingInt(slot -> rankBySlot[slot]));
+
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    public StockSnapshot(ProductRepository productRepository,
+                         StockRepository stockRepository,
+                         ReservedStock reservedStock,
+                         TransactionSnapshotOperations transactionSnapshotOperations,
+                         TransactionOperations<Connection> transactionOperations) {
+        this.productRepository = productRepository;
+        this.stockRepository = stockRepository;
+        this.reservedStock = reservedStock;
+        this.transactionSnapshotOperations = transactionSnapshotOperations;
+        this.transactionOperations = transactionOperations;
+    }
+
+    /**
+     * Active products ordered by name or, with a query, every product whose name
+     * or SKU contains it (case-insensitive), at any query length. Unlike
+     * {@link ProductService#search}, short queries are not limited to prefixes
+     * and results are not ranked.
+     */
+    public List<StockView> view(Optional<String> query) {
+        String q = query.map(String::trim)
+                .filter(s -> !s.isBlank())
+                .map(s -> s.toLowerCase(Locale.ROOT))
+                .orElse(null);
+
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            List<StockView> views = new ArrayList<>(q == null ? size : 16);
+            for (int rank = 0; rank < size; rank++) {
+                int slot = byName[rank];
+                if (q == null) {
+                    if (!Boolean.TRUE.equals(products[slot].active())) continue;
+                } else if (!lowerNames[slot].contains(q) && !lowerSkus[slot].contains(q)) {
+                    continue;
+                }
+                views.add(toView(slot));
+            }
+            return views;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The low entries of {@link #view}. Without a query they come straight from
+     * the low-stock set; a query has to be matched against every product anyway.
+     */
+    public List<StockView> lowView(Optional<String> query) {
+        if (query.map(String::trim).filter(s -> !s.isBlank()).isPresent()) {
+            return view(query).stream().filter(StockView::low).toList();
+        }
+
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            List<StockView> views = new ArrayList<>(lowSlots.size());
+            for (int slot : lowSlots) {
+                views.add(toView(slot));
+            }
+            return views;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The current entry of a product, whether or not it is active.
+     */
+    public Optional<StockView> find(long productId) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            Integer slot = slotByProductId.get(productId);
+            return slot == null ? Optional.empty() : Optional.of(toView(slot));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void addListener(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    @EventListener
+    void onStockChanged(StockChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (arrivedDuringReload != null) {
+                arrivedDuringReload.add(event);
+            }
+            if (!loaded || loadedAt.includes(event.transactionId())) return;
+            for (StockDelta d : event.deltas()) {
+                Integer slot = slotByProductId.get(d.productId());
+                if (slot == null) {
+                    stale = true;
+                    continue;
+                }
+                quantities[d.location().ordinal()][slot] += d.delta();
+                boolean lowChanged = updateLow(slot);
+                notifyChanged(d.productId(), lowChanged);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    void onProductChanged(ProductChangedEvent event) {
+        ProductEntity product = event.product();
+        lock.writeLock().lock();
+        try {
+            if (arrivedDuringReload != null) {
+                arrivedDuringReload.add(event);
+            }
+            if (!loaded) return;
+            boolean created = !slotByProductId.containsKey(product.id());
+            int slot = slotOf(product);
+            boolean wasLow = !created && lowSlots.remove(slot);
+            boolean renamed = created || !Objects.equals(products[slot].name(), product.name());
+            setProduct(slot, product);
+            if (created) {
+                byName[slot] = slot;
+                rankBySlot[slot] = slot;
+            }
+            if (renamed) {
+                moveToNameRank(slot);
+            }
+            boolean low = isLow(slot);
+            if (low) lowSlots.add(slot);
+            notifyChanged(product.id(), wasLow != low);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Re-evaluates the low flag of a product whose reserved quantity changed.
+     */
+    void reservationChanged(long productId) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded) return;
+            Integer slot = slotByProductId.get(productId);
+            if (slot == null) return;
+            notifyChanged(productId, updateLow(slot));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Scheduled(initialDelay = "${inventory.stock-snapshot.refresh-interval:5m}",
+            fixedDelay = "${inventory.stock-snapshot.refresh-interval:5m}")
+    void refresh() {
+        try {
+            reload();
+        } catch (RuntimeException ex) {
+            LOG.error("Stock snapshot refresh failed", ex);
+        }
+    }
+
+    /**
+     * Replaces the snapshot with the current contents of {@code product} and
+     * {@code stock}, read in one REPEATABLE READ transaction. Events that arrive
+     * while reading are applied on top, stock deltas only if the read did not
+     * see them.
+     */
+    public void reload() {
+        reloadLock.lock();
+        try {
+            reloadExclusively();
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private void reloadExclusively() {
+        lock.writeLock().lock();
+        try {
+            arrivedDuringReload = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        record Rows(TxidSnapshot snapshot, List<ProductEntity> products, List<StockEntity> stocks) {}
+        Rows rows;
+        try {
+            rows = transactionOperations.executeRead(status -> {
+                TxidSnapshot snapshot = transactionSnapshotOperations.repeatableReadSnapshot();
+                List<ProductEntity> p = new ArrayList<>();
+                productRepository.findAll().forEach(p::add);
+                List<StockEntity> s = new ArrayList<>();
+                stockRepository.findAll().forEach(s::add);
+                return new Rows(snapshot, p, s);
+            });
+        } catch (RuntimeException ex) {
+            lock.writeLock().lock();
+            try {
+                arrivedDuringReload = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw ex;
+        }
+
+        lock.writeLock().lock();
+        try {
+            size = 0;
+            stale = false;
+            slotByProductId.clear();
+            products = new ProductEntity[0];
+            lowerNames = new String[0];
+            lowerSkus = new String[0];
+            quantities = new long[LOCATIONS.length][0];
+            ensureCapacity(rows.products().size());
+
+            for (ProductEntity p : rows.products()) {
+                slotByProductId.put(p.id(), size);
+                setProduct(size, p);
+                size++;
+            }
+            for (StockEntity s : rows.stocks()) {
+                Integer slot = slotByProductId.get(s.id().productId());
+                if (slot == null || s.quantity() == null) continue;
+                quantities[s.id().location().ordinal()][slot] = s.quantity();
+            }
+            // in arrival order, so a product is in place before deltas of its stock
+            for (Object event : arrivedDuringReload) {
+                if (event instanceof ProductChangedEvent changed) {
+                    setProduct(slotOf(changed.product()), changed.product());
+                } else if (event instanceof StockChangedEvent changed
+                        && !rows.snapshot().includes(changed.transactionId())) {
+                    for (StockDelta d : changed.deltas()) {
+                        Integer slot = slotByProductId.get(d.productId());
+                        if (slot == null) {
+                            stale = true;
+                            continue;
+                        }
+                        quantities[d.location().ordinal()][slot] += d.delta();
+                    }
+                }
+            }
+            arrivedDuringReload = null;
+            sortByName();
+            loadedAt = rows.snapshot();
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void ensureLoaded() {
+        lock.readLock().lock();
+        try {
+            if (loaded && !stale) return;
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        reloadLock.lock();
+        try {
+            // another caller may have reloaded while this one waited
+            lock.readLock().lock();
+            try {
+                if (loaded && !stale) return;
+            } finally {
+                lock.readLock().unlock();
+            }
+            reloadExclusively();
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private boolean isLow(int slot) {
+        ProductEntity p = products[slot];
+        if (!Boolean.TRUE.equals(p.active())) return false;
+        int min = p.minTotal() == null ? 0 : p.minTotal();
+        return total(slot) - reservedStock.reserved(p.id()) < min;
+    }
+
+    private long total(int slot) {
+        long total = 0;
+        for (long[] byLocation : quantities) {
+            total += byLocation[slot];
+        }
+        return total;
+    }
+
+    /**
+     * @return whether the product entered or left the low-stock set
+     */
+    private boolean updateLow(int slot) {
+        if (isLow(slot)) {
+            return lowSlots.add(slot);
+        }
+        return lowSlots.remove(slot);
+    }
+
+    private void notifyChanged(long productId, boolean lowChanged) {
+        for (ChangeListener listener : listeners) {
+            listener.changed(productId, lowChanged);
+        }
+    }
+
+    private StockView toView(int slot) {
+        ProductEntity p = products[slot];
+        long backroom = quantities[Location.BACKROOM.ordinal()][slot];
+        long shopfloor = quantities[Location.SHOPFLOOR.ordinal()][slot];
+        long total = backroom + shopfloor;
+
+        return new StockView(
+                p.id(),
+                p.sku(),
+                p.name(),
+                p.unit(),
+                p.minTotal(),
+                (int) backroom,
+                (int) shopfloor,
+                (int) total,
+                (int) reservedStock.reserved(p.id()),
+                isLow(slot)
+        );
+    }
+
+    /**
+     * The product's slot, appended if the product is new.
+     */
+    private int slotOf(ProductEntity product) {
+        Integer slot = slotByProductId.get(product.id());
+        if (slot != null) return slot;
+        ensureCapacity(size + 1);
+        slotByProductId.put(product.id(), size);
+        return size++;
+    }
+
+    private void setProduct(int slot, ProductEntity p) {
+        products[slot] = p;
+        lowerNames[slot] = p.name() == null ? "" : p.name().toLowerCase(Locale.ROOT);
+        lowerSkus[slot] = p.sku() == null ? "" : p.sku().toLowerCase(Locale.ROOT);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= products.length) return;
+        int length = Math.max(capacity, products.length + (products.length >> 1) + 16);
+        products = Arrays.copyOf(products, length);
+        byName = Arrays.copyOf(byName, length);
+        rankBySlot = Arrays.copyOf(rankBySlot, length);
+        lowerNames = Arrays.copyOf(lowerNames, length);
+        lowerSkus = Arrays.copyOf(lowerSkus, length);
+        for (int i = 0; i < LOCATIONS.length; i++) {
+            quantities[i] = Arrays.copyOf(quantities[i], length);
+        }
+    }
+
+    private void sortByName() {
+        ProductEntity[] p = products;
+        int[] sorted = IntStream.range(0, size).boxed()
+                .sorted((a, b) -> BY_NAME.compare(p[a], p[b]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        System.arraycopy(sorted, 0, byName, 0, size);
+
+        lowSlots.clear();
+        for (int rank = 0; rank < size; rank++) {
+            rankBySlot[byName[rank]] = rank;
+        }
+        for (int rank = 0; rank < size; rank++) {
+            if (isLow(byName[rank])) lowSlots.add(byName[rank]);
+        }
+    }
+
+    /**
+     * Moves one slot, whose name changed, to its rank among the others, which
+     * are in order. Only the ranks between the old and the new position shift.
+     * The slot must not be in {@link #lowSlots}.
+     */
+    private void moveToNameRank(int slot) {
+        int from = rankBySlot[slot];
+        ProductEntity product = products[slot];
+
+        // first rank, among the other slots, whose product sorts after this one
+        int lo = 0;
+        int hi = size - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int other = byName[mid < from ? mid : mid + 1];
+            if (BY_NAME.compare(products[other], product) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        int to = lo;
+        if (to == from) return;
+
+        if (to < from) {
+            System.arraycopy(byName, to, byName, to + 1, from - to);
+        } else {
+            System.arraycopy(byName, from + 1, byName, from, to - from);
+        }
+        byName[to] = slot;
+        for (int rank = Math.min(from, to); rank <= Math.max(from, to); rank++) {
+            rankBySlot[byName[rank]] = rank;
+        }
+    }
+
+    /**
+     * Called under the snapshot's write lock, so it must only take note of the
+     * change and read the snapshot later.
+     */
+    @FunctionalInterface
+    public interface ChangeListener {
+
+        void changed(long productId, boolean lowChanged);
+    }
+}
@@ -0,0 +1,256 @@
+package org.example.domain.service;
+
+import io.micronaut.transaction.TransactionOperations;
+import jakarta.inject.Singleton;
+import org.example.config.WriteCombiningConfiguration;
+import org.example.domain.Location;
+import org.example.domain.MovementType;
+import org.example.domain.event.StockChangedEvent.StockDelta;
+import org.example.domain.exception.NotFoundException;
+import org.example.persistence.entity.MovementEntity;
+import org.example.persistence.repo.MovementBulkWriter;
+import org.example.persistence.repo.MovementBulkWriter.WrittenMovements;
+import org.example.persistence.repo.MovementCommandOperations.MovementOutcome;
+import org.example.persistence.repo.MovementCommandOperations.Status;
+import org.example.persistence.repo.StockBulkOperations;
+import org.example.persistence.repo.StockBulkOperations.LockedStock;
+
+import java.sql.Connection;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Group commit for receipts and issues of one product and location. The first
+ * caller for a key becomes its leader: it waits one micro-window, takes the
+ * queued commands and applies them in one transaction - one row lock, the
+ * commands checked in arrival order against the locked quantity less the
+ * reserved stock (see {@link ReservedStock}), one update for the net change
+ * and one movement batch. Every caller still gets its own outcome. When more
+ * commands queued up meanwhile, the leader hands over to the oldest waiting
+ * caller, so no request keeps writing for others.
+ * <p>
+ * Callers block: the leader parks its own thread for the window and the
+ * others wait in {@code join()} until their batch commits. This assumes every
+ * caller runs on a thread that may block - a virtual thread or the blocking
+ * pool, as the movement endpoints do with
+ * {@code @ExecuteOn(TaskExecutors.BLOCKING)} - and never on an event loop,
+ * where each waiting caller would stall every other request of that loop and
+ * the number of loops would cap how many callers can meet in one batch.
+ */
+@Singleton
+public class StockWriteCombiner {
+
+    private final StockBulkOperations stockBulkOperations;
+    private final MovementBulkWriter movementBulkWriter;
+    private final ReservedStock reservedStock;
+    private final ProductLookupCache productLookupCache;
+    private final StockEventPublisher stockEventPublisher;
+    private final TransactionOperations<Connection> transactionOperations;
+    private final WriteCombiningConfiguration configuration;
+
+    private final Map<StockKey, Group> groups = new ConcurrentHashMap<>();
+
+    public StockWriteCombiner(StockBulkOperations stockBulkOperations,
+                              MovementBulkWriter movementBulkWriter,
+                              ReservedStock reservedStock,
+                              ProductLookupCache productLookupCache,
+                              StockEventPublisher stockEventPublisher,
+                              TransactionOperations<Connection> transactionOperations,
+                              WriteCombiningConfiguration configuration) {
+        this.stockBulkOperations = stockBulkOperations;
+        this.movementBulkWriter = movementBulkWriter;
+        this.reservedStock = reservedStock;
+        this.productLookupCache = productLookupCache;
+        this.stockEventPublisher = stockEventPublisher;
+        this.transactionOperations = transactionOperations;
+        this.configuration = configuration;
+    }
+
+    /**
+     * @param delta      positive for a receipt into {@code location}, negative for
+     *                   an issue out of it
+     * @param confirming reserved quantity the issue may take, as in
+     *                   {@link MovementService#issueReserved}; 0 otherwise
+     */
+    public MovementOutcome submit(long productId, Location location, int delta, long confirming, String note) {
+        StockKey key = new StockKey(productId, location);
+        Pending pending = new Pending(delta, confirming, note);
+
+        while (true) {
+            Group group = groups.computeIfAbsent(key, Group::new);
+            boolean lead;
+            synchronized (group) {
+                if (group.retired) continue;
+                pending.group = group;
+                group.queue.add(pending);
+                lead = !group.leading;
+                if (lead) group.leading = true;
+            }
+            if (lead) lead(group);
+            break;
+        }
+
+        while (true) {
+            CompletableFuture.anyOf(pending.result, pending.promoted).join();
+            if (pending.result.isDone()) {
+                try {
+                    return pending.result.join();
+                } catch (CompletionException ex) {
+                    if (ex.getCause() instanceof RuntimeException re) throw re;
+                    throw ex;
+                }
+            }
+            pending.promoted = new CompletableFuture<>();
+            lead(pending.group);
+        }
+    }
+
+    /**
+     * Writes one batch, then either retires the group or promotes the oldest
+     * waiting caller to leader.
+     */
+    private void lead(Group group) {
+        long windowNanos = configuration.getWindow().toNanos();
+        if (windowNanos > 0) {
+            LockSupport.parkNanos(windowNanos);
+        }
+
+        List<Pending> batch = new ArrayList<>();
+        synchronized (group) {
+            int max = Math.max(1, configuration.getMaxBatch());
+            while (!group.queue.isEmpty() && batch.size() < max) {
+                batch.add(group.queue.poll());
+            }
+        }
+
+        try {
+            List<MovementOutcome> outcomes = write(group.key, batch);
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result.complete(outcomes.get(i));
+            }
+        } catch (RuntimeException ex) {
+            for (Pending p : batch) {
+                p.result.completeExceptionally(ex);
+            }
+        }
+
+        synchronized (group) {
+            Pending next = group.queue.peek();
+            if (next == null) {
+                group.leading = false;
+                group.retired = true;
+                groups.remove(group.key, group);
+            } else {
+                next.promoted.complete(null);
+            }
+        }
+    }
+
+    private List<MovementOutcome> write(StockKey key, List<Pending> batch) {
+        try {
+            productLookupCache.require(key.productId());
+        } catch (NotFoundException ex) {
+            return batch.stream().map(p -> MovementOutcome.rejected(Status.PRODUCT_NOT_FOUND)).toList();
+        }
+
+        return transactionOperations.executeWrite(status -> {
+            long issuing = 0;
+            for (Pending p : batch) {
+                if (p.delta < 0) issuing -= p.delta;
+            }
+            long reserved = issuing == 0 ? 0 : reservedStock.beginIssue(key.productId(), key.location(), issuing);
+
+            long available = 0;
+            for (LockedStock s : stockBulkOperations.lockForUpdate(new long[]{key.productId()})) {
+                if (s.location() == key.location()) available = s.quantity();
+            }
+
+            Instant now = Instant.now();
+            List<MovementOutcome> outcomes = new ArrayList<>(batch.size());
+            List<MovementEntity> movements = new ArrayList<>(batch.size());
+            long net = 0;
+            for (Pending p : batch) {
+                if (p.delta < 0 && available - (reserved - p.confirming) < -p.delta) {
+                    outcomes.add(MovementOutcome.rejected(Status.INSUFFICIENT_STOCK));
+                    continue;
+                }
+                // a confirmed reservation's stock is gone, no longer held
+                reserved -= p.confirming;
+                available += p.delta;
+                net += p.delta;
+                movements.add(movement(key, p, now));
+                outcomes.add(null);
+            }
+
+            if (net != 0) {
+                stockBulkOperations.addQuantities(
+                        new long[]{key.productId()}, new Location[]{key.location()}, new long[]{net});
+            }
+            WrittenMovements written = movementBulkWriter.writeWithIds(movements);
+            if (net != 0) {
+                stockEventPublisher.stockChanged(
+                        List.of(new StockDelta(key.productId(), key.location(), net)), written.transactionId());
+            }
+            int applied = 0;
+            for (int i = 0; i < outcomes.size(); i++) {
+                if (outcomes.get(i) == null) {
+                    outcomes.set(i, new MovementOutcome(
+                            Status.APPLIED, written.ids()[applied++], written.transactionId()));
+                }
+            }
+            return outcomes;
+        });
+    }
+
+    private static MovementEntity movement(StockKey key, Pending p, Instant at) {
+        boolean receipt = p.delta > 0;
+        return new MovementEntity(
+                null,
+                key.productId(),
+                receipt ? MovementType.RECEIPT : MovementType.ISSUE,
+                receipt ? null : key.location(),
+                receipt ? key.location() : null,
+                Math.abs(p.delta),
+                at,
+                p.note,
+                null
+        );
+    }
+
+    private record StockKey(long productId, Location location) {}
+
+    private static final class Group {
+
+        final StockKey key;
+        final ArrayDeque<Pending> queue = new ArrayDeque<>();
+        boolean leading;
+        boolean retired;
+
+        Group(StockKey key) {
+            this.key = key;
+        }
+    }
+
+    private static final class Pending {
+
+        final int delta;
+        final long confirming;
+        final String note;
+        final CompletableFuture<MovementOutcome> result = new CompletableFuture<>();
+        volatile CompletableFuture<Void> promoted = new CompletableFuture<>();
+        volatile Group group;
+
+        Pending(int delta, long confirming, String note) {
+            this.delta = delta;
+            this.confirming = confirming;
+            this.note = note;
+        }
+    }
+}
@@ -2,11 +2,11 @@ package org.example.inventory;
 
 import io.micronaut.http.HttpResponse;
 import io.micronaut.http.annotation.*;
+import io.micronaut.validation.Validated;
 import jakarta.inject.Inject;
-import pl.example.inventory.application.InventoryService;
-import pl.example.inventory.api.dto.PerformInventoryRequest;
-import pl.example.inventory.api.dto.InventoryResultView;
+import jakarta.validation.Valid;
 
+@Validated
 @Controller("/api/inventory")
 public class InventoryController {
 
@@ -19,9 +19,9 @@ public class InventoryController {
 
     @Post
     public HttpResponse<InventoryResultView> performInventory(
-            @Body PerformInventoryRequest request
+            @Body @Valid PerformInventoryRequest request
     ) {
         InventoryResultView result = inventoryService.performInventory(request);
         return HttpResponse.ok(result);
     }
-}
\ No newline at end of file
+}
@@ -1,23 +1,20 @@
 package org.example.inventory;
 
-import java.time.LocalDateTime;
-import java.util.List;
+import io.micronaut.core.annotation.Introspected;
+import io.micronaut.serde.annotation.Serdeable;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import org.example.domain.Location;
 
+/**
+ * A counted quantity of one SKU at one location. Lines for the same SKU and
+ * location (e.g. from several count sheets) are added up.
+ */
+@Serdeable
+@Introspected
 public record InventoryLine(
-        String sku,
-        int systemQuantity,
-        int countedQuantity
+        @NotBlank String sku,
+        @NotNull Location location,
+        @Min(0) int countedQuantity
 ) { }
-
-public record PerformInventoryRequest(
-        List<InventoryLine> lines,
-        String performedBy,
-        LocalDateTime performedAt
-) { }
-
-public record InventoryResultView(
-        int totalPositions,
-        int positionsWithDifference,
-        int totalPositiveDifference,
-        int totalNegativeDifference
-) { }
\ No newline at end of file
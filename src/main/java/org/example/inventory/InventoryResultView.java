@@ -0,0 +1,15 @@
+package org.example.inventory;
+
+import io.micronaut.serde.annotation.Serdeable;
+
+/**
+ * @param totalPositions          distinct SKU/location pairs counted
+ * @param positionsWithDifference pairs whose stock was adjusted to the count
+ */
+@Serdeable
+public record InventoryResultView(
+        int totalPositions,
+        int positionsWithDifference,
+        long totalPositiveDifference,
+        long totalNegativeDifference
+) { }
@@ -1,53 +1,162 @@
 package org.example.inventory;
 
+import io.micronaut.transaction.annotation.Transactional;
 import jakarta.inject.Singleton;
-import org.example.persistence.repo.StockRepository;
+import org.example.domain.Location;
+import org.example.domain.MovementType;
+import org.example.domain.event.StockChangedEvent.StockDelta;
+import org.example.domain.service.ProductLookupCache;
+import org.example.domain.service.StockEventPublisher;
+import org.example.persistence.entity.MovementEntity;
+import org.example.persistence.repo.MovementBulkWriter;
+import org.example.persistence.repo.StockBulkOperations;
+import org.example.persistence.repo.StockBulkOperations.CountAdjustment;
 
-import java.util.Objects;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 
+/**
+ * Applies a stocktake: the counted quantities replace the quantities in
+ * {@code stock}, and every difference is recorded as an ADJUSTMENT movement.
+ * SKUs are resolved in bulk, all counted rows are created if missing and then
+ * compared and set in two statements, and the movements are written in one
+ * batch, so the cost does not grow with round trips per line.
+ */
 @Singleton
 public class InventoryService {
 
-    private final StockRepository stockRepository;
+    private static final int SKU_LOOKUP_CHUNK = 5000;
+    private static final int MAX_REPORTED_UNKNOWN_SKUS = 20;
 
-    public InventoryService(StockRepository stockRepository) {
-        this.stockRepository = stockRepository;
+    private static final Comparator<Position> POSITION_ORDER = Comparator
+            .comparingLong(Position::productId)
+            .thenComparing(Position::location);
+
+    private final ProductLookupCache productLookupCache;
+    private final StockBulkOperations stockBulkOperations;
+    private final MovementBulkWriter movementBulkWriter;
+    private final StockEventPublisher stockEventPublisher;
+
+    public InventoryService(ProductLookupCache productLookupCache,
+                            StockBulkOperations stockBulkOperations,
+                            MovementBulkWriter movementBulkWriter,
+                            StockEventPublisher stockEventPublisher) {
+        this.productLookupCache = productLookupCache;
+        this.stockBulkOperations = stockBulkOperations;
+        this.movementBulkWriter = movementBulkWriter;
+        this.stockEventPublisher = stockEventPublisher;
     }
 
+    /**
+     * @throws IllegalArgumentException when a SKU is unknown; nothing is applied then
+     */
+    @Transactional
     public InventoryResultView performInventory(PerformInventoryRequest request) {
-        int totalPositions = 0;
-        int positionsWithDifference = 0;
-        int totalPositiveDifference = 0;
-        int totalNegativeDifference = 0;
+        Map<String, Long> idsBySku = resolve(request.lines());
 
+        TreeMap<Position, Long> counted = new TreeMap<>(POSITION_ORDER);
         for (InventoryLine line : request.lines()) {
-            totalPositions++;
-
-            Stock stock = stockRepository.findBySku(line.sku())
-                    .orElseThrow(() -> new IllegalArgumentException(
-                            "Unknown SKU in inventory: " + line.sku()
-                    ));
+            Long productId = idsBySku.get(line.sku().trim());
+            counted.merge(new Position(productId, line.location()), (long) line.countedQuantity(), Long::sum);
+        }
 
-            int difference = line.countedQuantity() - line.systemQuantity();
+        long[] productIds = new long[counted.size()];
+        Location[] locations = new Location[counted.size()];
+        long[] quantities = new long[counted.size()];
+        int i = 0;
+        for (Map.Entry<Position, Long> e : counted.entrySet()) {
+            if (e.getValue() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Counted quantity exceeds Integer.MAX_VALUE");
+            }
+            productIds[i] = e.getKey().productId();
+            locations[i] = e.getKey().location();
+            quantities[i] = e.getValue();
+            i++;
+        }
 
-            if (difference != 0) {
-                positionsWithDifference++;
-                if (difference > 0) {
-                    totalPositiveDifference += difference;
-                } else {
-                    totalNegativeDifference += Math.abs(difference);
-                }
+        List<CountAdjustment> adjustments = stockBulkOperations.setCounted(productIds, locations, quantities);
 
-                stock.adjustQuantity(difference, "Inventory adjustment");
-                stockRepository.save(stock);
+        Instant now = Instant.now();
+        String note = note(request);
+        long totalPositiveDifference = 0;
+        long totalNegativeDifference = 0;
+        List<MovementEntity> movements = new ArrayList<>(adjustments.size());
+        List<StockDelta> deltas = new ArrayList<>(adjustments.size());
+        for (CountAdjustment a : adjustments) {
+            long difference = a.counted() - a.previous();
+            if (difference > 0) {
+                totalPositiveDifference += difference;
+            } else {
+                totalNegativeDifference += -difference;
             }
+            movements.add(new MovementEntity(
+                    null,
+                    a.productId(),
+                    MovementType.ADJUSTMENT,
+                    difference < 0 ? a.location() : null,
+                    difference > 0 ? a.location() : null,
+                    (int) Math.abs(difference),
+                    now,
+                    note,
+                    null
+            ));
+            deltas.add(new StockDelta(a.productId(), a.location(), difference));
         }
+        movementBulkWriter.write(movements);
+        stockEventPublisher.stockChanged(deltas);
 
         return new InventoryResultView(
-                totalPositions,
-                positionsWithDifference,
+                counted.size(),
+                adjustments.size(),
                 totalPositiveDifference,
                 totalNegativeDifference
         );
     }
-}
\ No newline at end of file
+
+    private Map<String, Long> resolve(List<InventoryLine> lines) {
+        Set<String> skus = new LinkedHashSet<>();
+        for (InventoryLine line : lines) {
+            skus.add(line.sku().trim());
+        }
+
+        Map<String, Long> idsBySku = new HashMap<>(skus.size() * 2);
+        List<String> chunk = new ArrayList<>(Math.min(SKU_LOOKUP_CHUNK, skus.size()));
+        for (String sku : skus) {
+            chunk.add(sku);
+            if (chunk.size() == SKU_LOOKUP_CHUNK) {
+                idsBySku.putAll(productLookupCache.idsBySku(chunk));
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            idsBySku.putAll(productLookupCache.idsBySku(chunk));
+        }
+
+        if (idsBySku.size() < skus.size()) {
+            List<String> unknown = skus.stream().filter(s -> !idsBySku.containsKey(s)).toList();
+            throw new IllegalArgumentException("Unknown SKUs in inventory (" + unknown.size() + "): "
+                    + String.join(", ", unknown.subList(0, Math.min(MAX_REPORTED_UNKNOWN_SKUS, unknown.size()))));
+        }
+        return idsBySku;
+    }
+
+    private static String note(PerformInventoryRequest request) {
+        StringBuilder note = new StringBuilder("inventory count");
+        if (request.performedBy() != null && !request.performedBy().isBlank()) {
+            note.append(" by ").append(request.performedBy().trim());
+        }
+        if (request.performedAt() != null) {
+            note.append(" at ").append(request.performedAt());
+        }
+        return note.length() <= 500 ? note.toString() : note.substring(0, 500);
+    }
+
+    private record Position(long productId, Location location) {}
+}
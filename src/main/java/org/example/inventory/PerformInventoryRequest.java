@@ -0,0 +1,17 @@
+package org.example.inventory;
+
+import io.micronaut.core.annotation.Introspected;
+import io.micronaut.serde.annotation.Serdeable;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Serdeable
+@Introspected
+public record PerformInventoryRequest(
+        @NotEmpty List<@Valid InventoryLine> lines,
+        String performedBy,
+        LocalDateTime performedAt
+) { }
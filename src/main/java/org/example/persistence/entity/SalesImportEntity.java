@@ -31,5 +31,23 @@ public record SalesImportEntity(
         Integer processedLines,
 
         @DateCreated
-        Instant createdAt
+        Instant createdAt,
+
+        @MappedProperty("started_at")
+        Instant startedAt,
+
+        @MappedProperty("finished_at")
+        Instant finishedAt,
+
+        @MappedProperty("checkpoint_line")
+        Integer checkpointLine,
+
+        @MappedProperty("byte_length")
+        Long byteLength,
+
+        @MappedProperty("base_import_id")
+        Long baseImportId,
+
+        @MappedProperty("parent_import_id")
+        Long parentImportId
 ) {}
@@ -0,0 +1,145 @@
+package org.example.persistence.repo;
+
+import io.micronaut.data.jdbc.runtime.JdbcOperations;
+import jakarta.inject.Singleton;
+import org.example.persistence.entity.MovementEntity;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Appends movement rows through the PostgreSQL COPY protocol instead of one
+ * INSERT per row. {@link #write} leaves the ids to the column default and does
+ * not read them back; {@link #writeWithIds} draws them from the sequence first.
+ * Must be called inside a transaction; the rows become visible when it commits.
+ */
+@Singleton
+public class MovementBulkWriter {
+
+    private static final String COPY_SQL = """
+            COPY movement (product_id, type, from_location, to_location, quantity, occurred_at, note, sales_import_id)
+            FROM STDIN WITH (FORMAT csv)
+            """;
+
+    private static final String COPY_WITH_IDS_SQL = """
+            COPY movement (id, product_id, type, from_location, to_location, quantity, occurred_at, note, sales_import_id)
+            FROM STDIN WITH (FORMAT csv)
+            """;
+
+    private static final String NEXT_IDS_SQL = """
+            SELECT nextval('movement_id_seq'), txid_current()
+            FROM generate_series(1, ?)
+            """;
+
+    private static final int FLUSH_THRESHOLD = 64 * 1024;
+
+    private final JdbcOperations jdbcOperations;
+
+    public MovementBulkWriter(JdbcOperations jdbcOperations) {
+        this.jdbcOperations = jdbcOperations;
+    }
+
+    /**
+     * @return number of rows written
+     */
+    public long write(Collection<MovementEntity> movements) {
+        if (movements.isEmpty()) {
+            return 0;
+        }
+        return copy(COPY_SQL, movements, null);
+    }
+
+    /**
+     * Like {@link #write}, but takes the ids from {@code movement_id_seq} up
+     * front, so the caller learns them without a RETURNING round trip per row.
+     * The same query reads the id of the current transaction.
+     *
+     * @return the id of each movement, in the order given; no ids and
+     *         transaction id 0 for no movements
+     */
+    public WrittenMovements writeWithIds(List<MovementEntity> movements) {
+        if (movements.isEmpty()) {
+            return new WrittenMovements(new long[0], 0);
+        }
+
+        WrittenMovements written = jdbcOperations.execute(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(NEXT_IDS_SQL)) {
+                ps.setInt(1, movements.size());
+                long[] next = new long[movements.size()];
+                long transactionId = 0;
+                int i = 0;
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        next[i++] = rs.getLong(1);
+                        transactionId = rs.getLong(2);
+                    }
+                }
+                return new WrittenMovements(next, transactionId);
+            }
+        });
+        // the rows of generate_series carry no order; ascending ids follow the input order
+        Arrays.sort(written.ids());
+        copy(COPY_WITH_IDS_SQL, movements, written.ids());
+        return written;
+    }
+
+    private long copy(String sql, Collection<MovementEntity> movements, long[] ids) {
+        return jdbcOperations.execute(connection -> {
+            CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(sql);
+            try {
+                Instant now = Instant.now();
+                StringBuilder sb = new StringBuilder(FLUSH_THRESHOLD + 512);
+                int i = 0;
+                for (MovementEntity m : movements) {
+                    if (ids != null) sb.append(ids[i++]).append(',');
+                    appendRow(sb, m, now);
+                    if (sb.length() >= FLUSH_THRESHOLD) {
+                        flush(copyIn, sb);
+                    }
+                }
+                flush(copyIn, sb);
+                return copyIn.endCopy();
+            } finally {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+            }
+        });
+    }
+
+    private static void appendRow(StringBuilder sb, MovementEntity m, Instant now) {
+        sb.append(m.productId()).append(',');
+        sb.append(m.type().name()).append(',');
+        if (m.fromLocation() != null) sb.append(m.fromLocation().name());
+        sb.append(',');
+        if (m.toLocation() != null) sb.append(m.toLocation().name());
+        sb.append(',');
+        sb.append(m.quantity()).append(',');
+        sb.append(m.occurredAt() != null ? m.occurredAt() : now).append(',');
+        // always quoted, so an empty note stays distinct from NULL
+        if (m.note() != null) sb.append('"').append(m.note().replace("\"", "\"\"")).append('"');
+        sb.append(',');
+        if (m.salesImportId() != null) sb.append(m.salesImportId());
+        sb.append('\n');
+    }
+
+    private static void flush(CopyIn copyIn, StringBuilder sb) throws SQLException {
+        if (sb.isEmpty()) return;
+        byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        sb.setLength(0);
+    }
+
+    /**
+     * @param transactionId id of the transaction writing them, as {@code txid_current()} reports it
+     */
+    public record WrittenMovements(long[] ids, long transactionId) {}
+}
@@ -0,0 +1,181 @@
+package org.example.persistence.repo;
+
+import io.micronaut.data.jdbc.runtime.JdbcOperations;
+import jakarta.inject.Singleton;
+import org.example.domain.Location;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Types;
+
+/**
+ * Receipt, issue and transfer as one statement each: data-modifying CTEs
+ * check the product, change the stock row(s) and append the movement, and the
+ * statement reports which of those happened. Nothing is written when the
+ * product does not exist or there is not enough stock beyond the quantity the
+ * caller keeps. The statement also returns the id of the transaction, so the
+ * stock event needs no query of its own. Must be called inside a transaction.
+ */
+@Singleton
+public class MovementCommandOperations {
+
+    private static final String RECEIPT_SQL = """
+            WITH product_row AS (
+                SELECT id FROM product WHERE id = ?
+            ),
+            added AS (
+                INSERT INTO stock(product_id, location, quantity)
+                SELECT id, ?, ? FROM product_row
+                ON CONFLICT (product_id, location)
+                DO UPDATE SET quantity = stock.quantity + EXCLUDED.quantity,
+                              updated_at = now()
+                RETURNING product_id
+            ),
+            logged AS (
+                INSERT INTO movement(product_id, type, from_location, to_location, quantity, occurred_at, note)
+                SELECT product_id, 'RECEIPT', NULL, ?, ?, now(), ? FROM added
+                RETURNING id
+            )
+            SELECT EXISTS (SELECT 1 FROM product_row), (SELECT id FROM logged), txid_current()
+            """;
+
+    private static final String ISSUE_SQL = """
+            WITH product_row AS (
+                SELECT id FROM product WHERE id = ?
+            ),
+            taken AS (
+                UPDATE stock s
+                SET quantity = s.quantity - ?,
+                    updated_at = now()
+                FROM product_row p
+                WHERE s.product_id = p.id
+                  AND s.location = ?
+                  AND s.quantity - ? >= ?
+                RETURNING s.product_id
+            ),
+            logged AS (
+                INSERT INTO movement(product_id, type, from_location, to_location, quantity, occurred_at, note)
+                SELECT product_id, 'ISSUE', ?, NULL, ?, now(), ? FROM taken
+                RETURNING id
+            )
+            SELECT EXISTS (SELECT 1 FROM product_row), (SELECT id FROM logged), txid_current()
+            """;
+
+    /*
+     * Both stock rows are locked up front in location order, so two opposite
+     * transfers of the same product cannot deadlock.
+     */
+    private static final String TRANSFER_SQL = """
+            WITH product_row AS (
+                SELECT id FROM product WHERE id = ?
+            ),
+            locked AS (
+                SELECT s.product_id, s.location, s.quantity
+                FROM stock s
+                JOIN product_row p ON p.id = s.product_id
+                ORDER BY s.location
+                FOR UPDATE OF s
+            ),
+            taken AS (
+                UPDATE stock s
+                SET quantity = s.quantity - ?,
+                    updated_at = now()
+                FROM locked l
+                WHERE s.product_id = l.product_id
+                  AND s.location = l.location
+                  AND l.location = ?
+                  AND s.quantity - ? >= ?
+                RETURNING s.product_id
+            ),
+            added AS (
+                INSERT INTO stock(product_id, location, quantity)
+                SELECT product_id, ?, ? FROM taken
+                ON CONFLICT (product_id, location)
+                DO UPDATE SET quantity = stock.quantity + EXCLUDED.quantity,
+                              updated_at = now()
+                RETURNING product_id
+            ),
+            logged AS (
+                INSERT INTO movement(product_id, type, from_location, to_location, quantity, occurred_at, note)
+                SELECT product_id, 'TRANSFER', ?, ?, ?, now(), ? FROM added
+                RETURNING id
+            )
+            SELECT EXISTS (SELECT 1 FROM product_row), (SELECT id FROM logged), txid_current()
+            """;
+
+    private final JdbcOperations jdbcOperations;
+
+    public MovementCommandOperations(JdbcOperations jdbcOperations) {
+        this.jdbcOperations = jdbcOperations;
+    }
+
+    public MovementOutcome receipt(long productId, Location to, int qty, String note) {
+        return execute(RECEIPT_SQL,
+                productId,
+                to.name(), qty,
+                to.name(), qty, note);
+    }
+
+    /**
+     * @param keep quantity that must stay at {@code from}, e.g. reserved stock
+     */
+    public MovementOutcome issue(long productId, Location from, int qty, long keep, String note) {
+        return execute(ISSUE_SQL,
+                productId,
+                qty, from.name(), keep, qty,
+                from.name(), qty, note);
+    }
+
+    /**
+     * @param keep quantity that must stay at {@code from}, e.g. reserved stock
+     */
+    public MovementOutcome transfer(long productId, Location from, Location to, int qty, long keep, String note) {
+        return execute(TRANSFER_SQL,
+                productId,
+                qty, from.name(), keep, qty,
+                to.name(), qty,
+                from.name(), to.name(), qty, note);
+    }
+
+    private MovementOutcome execute(String sql, Object... params) {
+        return jdbcOperations.execute(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                for (int i = 0; i < params.length; i++) {
+                    if (params[i] == null) {
+                        ps.setNull(i + 1, Types.VARCHAR);
+                    } else {
+                        ps.setObject(i + 1, params[i]);
+                    }
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    boolean productFound = rs.getBoolean(1);
+                    long movementId = rs.getLong(2);
+                    if (!rs.wasNull()) {
+                        return new MovementOutcome(Status.APPLIED, movementId, rs.getLong(3));
+                    }
+                    return MovementOutcome.rejected(
+                            productFound ? Status.INSUFFICIENT_STOCK : Status.PRODUCT_NOT_FOUND);
+                }
+            }
+        });
+    }
+
+    public enum Status {
+        APPLIED,
+        PRODUCT_NOT_FOUND,
+        INSUFFICIENT_STOCK
+    }
+
+    /**
+     * @param movementId    id of the appended movement, null unless applied
+     * @param transactionId id of the transaction that appended it, as
+     *                      {@code txid_current()} reports it; 0 unless applied
+     */
+    public record MovementOutcome(Status status, Long movementId, long transactionId) {
+
+        public static MovementOutcome rejected(Status status) {
+            return new MovementOutcome(status, null, 0);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package org.example.persistence.repo;
+
+import io.micronaut.data.jdbc.runtime.JdbcOperations;
+import jakarta.inject.Singleton;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * DDL for the monthly partitions of {@code movement} ({@code movement_YYYY_MM},
+ * bounds at UTC month starts). Names and bounds are derived from a
+ * {@link YearMonth} only, never from input. Must be called inside a transaction.
+ */
+@Singleton
+public class MovementPartitionOperations {
+
+    private static final String PARTITIONS_SQL = """
+            SELECT c.relname
+            FROM pg_inherits i
+            JOIN pg_class c ON c.oid = i.inhrelid
+            WHERE i.inhparent = CAST(? AS regclass)
+            """;
+
+    private static final String FOREIGN_KEYS_SQL = """
+            SELECT conname
+            FROM pg_constraint
+            WHERE conrelid = CAST(? AS regclass)
+              AND contype = 'f'
+            """;
+
+    private static final String DEFAULT_ROWS_SQL = """
+            SELECT EXISTS (
+                SELECT 1 FROM movement_default WHERE occurred_at >= ? AND occurred_at < ?
+            )
+            """;
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("movement_(\\d{4})_(\\d{2})");
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private final JdbcOperations jdbcOperations;
+
+    public MovementPartitionOperations(JdbcOperations jdbcOperations) {
+        this.jdbcOperations = jdbcOperations;
+    }
+
+    /**
+     * @param parent {@code movement} or {@code movement_archive}
+     * @return months that have a partition, in no particular order
+     */
+    public List<YearMonth> monthlyPartitions(String parent) {
+        return jdbcOperations.execute(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(PARTITIONS_SQL)) {
+                ps.setString(1, parent);
+                List<YearMonth> months = new ArrayList<>();
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        Matcher m = PARTITION_NAME.matcher(rs.getString(1));
+                        if (m.matches()) {
+                            months.add(YearMonth.of(Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2))));
+                        }
+                    }
+                }
+                return months;
+            }
+        });
+    }
+
+    /**
+     * Creates the month's partition. Rows of that month already sitting in
+     * {@code movement_default} would make {@code CREATE ... PARTITION OF} fail,
+     * so they are moved into the new table before it is attached.
+     *
+     * @return rows moved out of {@code movement_default}
+     */
+    public int createPartition(YearMonth month) {
+        String name = partitionName(month);
+        if (!defaultHasRows(month)) {
+            execute("CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF movement FOR VALUES " + bounds(month));
+            return 0;
+        }
+
+        // keeps writers out of the default partition until the month is attached
+        execute("LOCK TABLE movement_default IN EXCLUSIVE MODE");
+        execute("CREATE TABLE " + name + " (LIKE movement INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+        int moved = jdbcOperations.execute(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement("WITH moved AS ("
+                    + "DELETE FROM movement_default WHERE occurred_at >= ? AND occurred_at < ? RETURNING *) "
+                    + "INSERT INTO " + name + " SELECT * FROM moved")) {
+                ps.setObject(1, monthStart(month));
+                ps.setObject(2, monthStart(month.plusMonths(1)));
+                return ps.executeUpdate();
+            }
+        });
+        execute("ALTER TABLE movement ATTACH PARTITION " + name + " FOR VALUES " + bounds(month));
+        return moved;
+    }
+
+    /**
+     * Detaches the month from {@code movement} and attaches it, with its rows and
+     * indexes, to {@code movement_archive}. The foreign keys the partition
+     * inherited from {@code movement} stay behind on a detached table, so they
+     * are dropped: archived rows do not hold back product or import deletes.
+     */
+    public void archivePartition(YearMonth month) {
+        String name = partitionName(month);
+        execute("ALTER TABLE movement DETACH PARTITION " + name);
+        for (String constraint : foreignKeys(name)) {
+            execute("ALTER TABLE " + name + " DROP CONSTRAINT " + quoteIdentifier(constraint));
+        }
+        execute("ALTER TABLE movement_archive ATTACH PARTITION " + name + " FOR VALUES " + bounds(month));
+    }
+
+    private boolean defaultHasRows(YearMonth month) {
+        return jdbcOperations.execute(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(DEFAULT_ROWS_SQL)) {
+                ps.setObject(1, monthStart(month));
+                ps.setObject(2, monthStart(month.plusMonths(1)));
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    return rs.getBoolean(1);
+                }
+            }
+        });
+    }
+
+    private List<String> foreignKeys(String table) {
+        return jdbcOperations.execute(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(FOREIGN_KEYS_SQL)) {
+                ps.setString(1, table);
+                List<String> names = new ArrayList<>();
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        names.add(rs.getString(1));
+                    }
+                }
+                return names;
+            }
+        });
+    }
+
+    private void execute(String ddl) {
+        jdbcOperations.execute(connection -> {
+            try (Statement st = connection.createStatement()) {
+                return st.execute(ddl);
+            }
+        });
+    }
+
+    private static String partitionName(YearMonth month) {
+        return "movement_" + month.format(SUFFIX);
+    }
+
+    private static OffsetDateTime monthStart(YearMonth month) {
+        return OffsetDateTime.of(month.atDay(1).atStartOfDay(), ZoneOffset.UTC);
+    }
+
+    private static String quoteIdentifier(String name) {
+        return '"' + name.replace("\"", "\"\"") + '"';
+    }
+
+    private static String bounds(YearMonth month) {
+        return "FROM ('" + month.atDay(1) + " 00:00:00+00') TO ('" + month.plusMonths(1).atDay(1) + " 00:00:00+00')";
+    }
+}
@@ -1,14 +1,71 @@
 package org.example.persistence.repo;
 
+import io.micronaut.core.annotation.Introspected;
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.data.annotation.Query;
 import io.micronaut.data.jdbc.annotation.JdbcRepository;
 import io.micronaut.data.model.query.builder.sql.Dialect;
 import io.micronaut.data.repository.CrudRepository;
 import org.example.persistence.entity.MovementEntity;
 
+import java.time.Instant;
 import java.util.List;
 
 @JdbcRepository(dialect = Dialect.POSTGRES)
 public interface MovementRepository extends CrudRepository<MovementEntity, Long> {
 
-    List<MovementEntity> findByProductIdOrderByOccurredAtDesc(Long productId);
+    /**
+     * Newest movements of a product, first page of the keyset order
+     * {@code (occurred_at DESC, id DESC)}.
+     */
+    @Query("""
+            SELECT *
+            FROM movement
+            WHERE product_id = :productId
+            ORDER BY occurred_at DESC, id DESC
+            LIMIT :limit
+            """)
+    List<MovementEntity> findHistory(Long productId, int limit);
+
+    /**
+     * Page of the same order strictly after the movement {@code (occurredAt, id)};
+     * the {@code occurred_at <=} bound keeps the seek on the product/occurred_at index.
+     */
+    @Query("""
+            SELECT *
+            FROM movement
+            WHERE product_id = :productId
+              AND occurred_at <= :occurredAt
+              AND (occurred_at < :occurredAt OR id < :id)
+            ORDER BY occurred_at DESC, id DESC
+            LIMIT :limit
+            """)
+    List<MovementEntity> findHistoryAfter(Long productId, Instant occurredAt, Long id, int limit);
+
+    /**
+     * Quantity moved per product for one movement type within {@code [from, to)},
+     * largest first. A location matches either side of the movement.
+     */
+    @Query("""
+            SELECT m.product_id, p.sku, p.name, SUM(m.quantity) AS quantity_sold
+            FROM movement m
+            JOIN product p ON p.id = m.product_id
+            WHERE m.type = :type
+              AND m.occurred_at >= COALESCE(CAST(:from AS timestamptz), '-infinity')
+              AND m.occurred_at < COALESCE(CAST(:to AS timestamptz), 'infinity')
+              AND (CAST(:location AS varchar) IS NULL
+                   OR m.from_location = :location
+                   OR m.to_location = :location)
+            GROUP BY m.product_id, p.sku, p.name
+            ORDER BY quantity_sold DESC, m.product_id
+            LIMIT :limit
+            """)
+    List<ProductQuantityTotal> sumQuantityByProduct(String type,
+                                                    @Nullable Instant from,
+                                                    @Nullable Instant to,
+                                                    @Nullable String location,
+                                                    int limit);
+
+    @Introspected
+    record ProductQuantityTotal(Long productId, String sku, String name, long quantitySold) {}
 }
@@ -0,0 +1,134 @@
+package org.example.persistence.repo;
+
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.data.jdbc.runtime.JdbcOperations;
+import jakarta.inject.Singleton;
+import org.example.domain.Location;
+import org.example.domain.MovementType;
+import org.example.persistence.entity.MovementEntity;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Movement search with optional filters, in the keyset order
+ * {@code (occurred_at DESC, id DESC)}. Only the filters that are set end up in
+ * the statement, so the planner can pick the matching index.
+ */
+@Singleton
+public class MovementSearchOperations {
+
+    private static final String SALES_IMPORT_TOTALS_SQL = """
+            SELECT COUNT(DISTINCT product_id), COALESCE(SUM(quantity), 0)
+            FROM movement
+            WHERE sales_import_id = ?
+              AND type = 'SALE_IMPORT'
+            """;
+
+    private final JdbcOperations jdbcOperations;
+
+    public MovementSearchOperations(JdbcOperations jdbcOperations) {
+        this.jdbcOperations = jdbcOperations;
+    }
+
+    /**
+     * @param afterOccurredAt with {@code afterId}, the last movement of the previous page
+     */
+    public List<MovementEntity> search(MovementFilter filter,
+                                       @Nullable Instant afterOccurredAt,
+                                       @Nullable Long afterId,
+                                       int limit) {
+        StringBuilder sql = new StringBuilder("SELECT * FROM movement WHERE TRUE");
+        List<Object> params = new ArrayList<>();
+
+        if (filter.from() != null) {
+            sql.append(" AND occurred_at >= ?");
+            params.add(filter.from().atOffset(ZoneOffset.UTC));
+        }
+        if (filter.to() != null) {
+            sql.append(" AND occurred_at < ?");
+            params.add(filter.to().atOffset(ZoneOffset.UTC));
+        }
+        if (filter.type() != null) {
+            sql.append(" AND type = ?");
+            params.add(filter.type().name());
+        }
+        if (filter.fromLocation() != null) {
+            sql.append(" AND from_location = ?");
+            params.add(filter.fromLocation().name());
+        }
+        if (filter.toLocation() != null) {
+            sql.append(" AND to_location = ?");
+            params.add(filter.toLocation().name());
+        }
+        if (filter.salesImportId() != null) {
+            sql.append(" AND sales_import_id = ?");
+            params.add(filter.salesImportId());
+        }
+        if (filter.productId() != null) {
+            sql.append(" AND product_id = ?");
+            params.add(filter.productId());
+        }
+        if (afterOccurredAt != null && afterId != null) {
+            sql.append(" AND occurred_at <= ? AND (occurred_at < ? OR id < ?)");
+            params.add(afterOccurredAt.atOffset(ZoneOffset.UTC));
+            params.add(afterOccurredAt.atOffset(ZoneOffset.UTC));
+            params.add(afterId);
+        }
+        sql.append(" ORDER BY occurred_at DESC, id DESC LIMIT ?");
+        params.add(limit);
+
+        return jdbcOperations.execute(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(sql.toString())) {
+                for (int i = 0; i < params.size(); i++) {
+                    ps.setObject(i + 1, params.get(i));
+                }
+                List<MovementEntity> rows = new ArrayList<>(limit);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        rows.add(jdbcOperations.readEntity(rs, MovementEntity.class));
+                    }
+                }
+                return rows;
+            }
+        });
+    }
+
+    /**
+     * What a sales import took from stock, over every chunk and run of it that
+     * committed.
+     */
+    public SalesImportTotals salesImportTotals(long salesImportId) {
+        return jdbcOperations.execute(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(SALES_IMPORT_TOTALS_SQL)) {
+                ps.setLong(1, salesImportId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    return new SalesImportTotals(rs.getInt(1), rs.getLong(2));
+                }
+            }
+        });
+    }
+
+    /**
+     * @param products distinct products with a sale movement of the import
+     */
+    public record SalesImportTotals(int products, long quantity) {}
+
+    /**
+     * Null fields do not filter. {@code to} is exclusive.
+     */
+    public record MovementFilter(
+            @Nullable Instant from,
+            @Nullable Instant to,
+            @Nullable MovementType type,
+            @Nullable Location fromLocation,
+            @Nullable Location toLocation,
+            @Nullable Long salesImportId,
+            @Nullable Long productId
+    ) {}
+}
@@ -6,6 +6,7 @@ import io.micronaut.data.model.query.builder.sql.Dialect;
 import io.micronaut.data.repository.CrudRepository;
 import org.example.persistence.entity.ProductEntity;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,6 +15,8 @@ public interface ProductRepository extends CrudRepository<ProductEntity, Long> {
 
     Optional<ProductEntity> findBySku(String sku);
 
+    List<ProductEntity> findBySkuIn(Collection<String> skus);
+
     @Query("""
             SELECT *
             FROM product
@@ -22,12 +25,85 @@ public interface ProductRepository extends CrudRepository<ProductEntity, Long> {
             """)
     List<ProductEntity> listActive();
 
+    /**
+     * Products whose SKU or name starts with {@code prefix}, exact SKU matches
+     * first, then active products, then SKU prefix matches. Only the first
+     * {@code candidates} matches in SKU order and in name order are ranked;
+     * both scans walk the {@code text_pattern_ops} indexes in their order
+     * ({@code ~<~}), so a short prefix does not sort every product it matches.
+     *
+     * @param exact  the lower-cased query
+     * @param prefix LIKE pattern, lower-cased and escaped
+     */
     @Query("""
-            SELECT *
-            FROM product
-            WHERE (LOWER(name) LIKE CONCAT('%', LOWER(:query), '%')
-               OR LOWER(sku)  LIKE CONCAT('%', LOWER(:query), '%'))
-            ORDER BY name ASC
+            WITH candidate AS (
+                (SELECT id FROM product
+                 WHERE LOWER(sku) LIKE :prefix
+                 ORDER BY LOWER(sku) USING ~<~
+                 LIMIT :candidates)
+                UNION
+                (SELECT id FROM product
+                 WHERE LOWER(name) LIKE :prefix
+                 ORDER BY LOWER(name) USING ~<~
+                 LIMIT :candidates)
+            )
+            SELECT p.*
+            FROM product p
+            JOIN candidate c ON c.id = p.id
+            ORDER BY (LOWER(p.sku) = :exact) DESC,
+                     p.active DESC,
+                     (LOWER(p.sku) LIKE :prefix) DESC,
+                     p.name ASC,
+                     p.id ASC
+            LIMIT :limit
+            """)
+    List<ProductEntity> searchByPrefix(String exact, String prefix, int candidates, int limit);
+
+    /**
+     * Products whose SKU or name contains the query, ranked: exact SKU,
+     * active, SKU prefix, name prefix, then trigram similarity. Only a bounded
+     * set of candidates is ranked: the first {@code candidates} SKU and name
+     * prefix matches in index order, and the {@code candidates} SKU and name
+     * substring matches nearest to the query by trigram distance ({@code <->},
+     * served by the GiST indexes), so similarity() runs on those rows only.
+     *
+     * @param exact    the lower-cased query
+     * @param prefix   LIKE pattern, lower-cased and escaped
+     * @param contains LIKE pattern, lower-cased and escaped
+     */
+    @Query("""
+            WITH candidate AS (
+                (SELECT id FROM product
+                 WHERE LOWER(sku) LIKE :prefix
+                 ORDER BY LOWER(sku) USING ~<~
+                 LIMIT :candidates)
+                UNION
+                (SELECT id FROM product
+                 WHERE LOWER(name) LIKE :prefix
+                 ORDER BY LOWER(name) USING ~<~
+                 LIMIT :candidates)
+                UNION
+                (SELECT id FROM product
+                 WHERE LOWER(sku) LIKE :contains
+                 ORDER BY LOWER(sku) <-> :exact
+                 LIMIT :candidates)
+                UNION
+                (SELECT id FROM product
+                 WHERE LOWER(name) LIKE :contains
+                 ORDER BY LOWER(name) <-> :exact
+                 LIMIT :candidates)
+            )
+            SELECT p.*
+            FROM product p
+            JOIN candidate c ON c.id = p.id
+            ORDER BY (LOWER(p.sku) = :exact) DESC,
+                     p.active DESC,
+                     (LOWER(p.sku) LIKE :prefix) DESC,
+                     (LOWER(p.name) LIKE :prefix) DESC,
+                     GREATEST(similarity(LOWER(p.name), :exact), similarity(LOWER(p.sku), :exact)) DESC,
+                     p.name ASC,
+                     p.id ASC
+            LIMIT :limit
             """)
-    List<ProductEntity> search(String query);
+    List<ProductEntity> searchByTrigram(String exact, String prefix, String contains, int candidates, int limit);
 }
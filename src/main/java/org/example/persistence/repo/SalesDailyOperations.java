@@ -0,0 +1,257 @@
+package org.example.persistence.repo;
+
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.data.jdbc.runtime.JdbcOperations;
+import io.micronaut.transaction.annotation.ReadOnly;
+import jakarta.inject.Singleton;
+import org.example.domain.MovementType;
+import org.example.persistence.entity.MovementEntity;
+import org.example.persistence.repo.MovementRepository.ProductQuantityTotal;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Statements on the {@code sales_daily} rollup: SALE_IMPORT quantities per
+ * product, source location and UTC day. Writes must be called inside a transaction.
+ */
+@Singleton
+public class SalesDailyOperations {
+
+    private static final String ADD_SQL = """
+            INSERT INTO sales_daily (product_id, location, day, quantity)
+            SELECT r.product_id, r.location, r.day, r.qty
+            FROM unnest(?::bigint[], ?::varchar[], ?::date[], ?::bigint[]) AS r(product_id, location, day, qty)
+            ORDER BY r.product_id, r.location, r.day
+            ON CONFLICT (product_id, location, day)
+                DO UPDATE SET quantity = sales_daily.quantity + EXCLUDED.quantity
+            """;
+
+    private static final String DELETE_RANGE_SQL = """
+            DELETE FROM sales_daily
+            WHERE day >= ? AND day < ?
+            """;
+
+    /*
+     * Months past the retention live in movement_archive; they are read too, so
+     * rebuilding an archived month does not wipe its totals.
+     */
+    private static final String REBUILD_RANGE_SQL = """
+            INSERT INTO sales_daily (product_id, location, day, quantity)
+            SELECT m.product_id, m.from_location, CAST(m.occurred_at AT TIME ZONE 'UTC' AS date), SUM(m.quantity)
+            FROM (
+                SELECT product_id, from_location, occurred_at, quantity
+                FROM movement
+                WHERE type = 'SALE_IMPORT'
+                  AND from_location IS NOT NULL
+                  AND occurred_at >= ?
+                  AND occurred_at < ?
+                UNION ALL
+                SELECT product_id, from_location, occurred_at, quantity
+                FROM movement_archive
+                WHERE type = 'SALE_IMPORT'
+                  AND from_location IS NOT NULL
+                  AND occurred_at >= ?
+                  AND occurred_at < ?
+            ) m
+            GROUP BY 1, 2, 3
+            """;
+
+    private static final String FIRST_SALE_DAY_SQL = """
+            SELECT CAST(MIN(occurred_at) AT TIME ZONE 'UTC' AS date)
+            FROM (
+                SELECT MIN(occurred_at) AS occurred_at FROM movement WHERE type = 'SALE_IMPORT'
+                UNION ALL
+                SELECT MIN(occurred_at) FROM movement_archive WHERE type = 'SALE_IMPORT'
+            ) m
+            """;
+
+    private static final String TOP_PRODUCTS_SQL = """
+            SELECT d.product_id, p.sku, p.name, SUM(d.quantity) AS quantity_sold
+            FROM sales_daily d
+            JOIN product p ON p.id = d.product_id
+            WHERE d.day >= COALESCE(CAST(? AS date), '-infinity')
+              AND d.day < COALESCE(CAST(? AS date), 'infinity')
+              AND (CAST(? AS varchar) IS NULL OR d.location = ?)
+            GROUP BY d.product_id, p.sku, p.name
+            ORDER BY quantity_sold DESC, d.product_id
+            LIMIT ?
+            """;
+
+    private static final String TREND_SQL = """
+            SELECT d.day, SUM(d.quantity)
+            FROM sales_daily d
+            WHERE d.day >= ?
+              AND d.day < ?
+              AND (CAST(? AS bigint) IS NULL OR d.product_id = ?)
+              AND (CAST(? AS varchar) IS NULL OR d.location = ?)
+            GROUP BY d.day
+            ORDER BY d.day
+            """;
+
+    private final JdbcOperations jdbcOperations;
+
+    public SalesDailyOperations(JdbcOperations jdbcOperations) {
+        this.jdbcOperations = jdbcOperations;
+    }
+
+    /**
+     * Adds the quantities of the given SALE_IMPORT movements to their days, in
+     * one statement. Rows are upserted in key order.
+     */
+    public void add(Collection<MovementEntity> movements) {
+        Map<Key, Long> totals = new TreeMap<>();
+        for (MovementEntity m : movements) {
+            if (m.type() != MovementType.SALE_IMPORT || m.fromLocation() == null) continue;
+            LocalDate day = LocalDate.ofInstant(m.occurredAt(), ZoneOffset.UTC);
+            totals.merge(new Key(m.productId(), m.fromLocation().name(), day), (long) m.quantity(), Long::sum);
+        }
+        if (totals.isEmpty()) {
+            return;
+        }
+
+        Long[] productIds = new Long[totals.size()];
+        String[] locations = new String[totals.size()];
+        Date[] days = new Date[totals.size()];
+        Long[] quantities = new Long[totals.size()];
+        int i = 0;
+        for (Map.Entry<Key, Long> e : totals.entrySet()) {
+            productIds[i] = e.getKey().productId();
+            locations[i] = e.getKey().location();
+            days[i] = Date.valueOf(e.getKey().day());
+            quantities[i] = e.getValue();
+            i++;
+        }
+
+        jdbcOperations.execute(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(ADD_SQL)) {
+                ps.setArray(1, connection.createArrayOf("bigint", productIds));
+                ps.setArray(2, connection.createArrayOf("varchar", locations));
+                ps.setArray(3, connection.createArrayOf("date", days));
+                ps.setArray(4, connection.createArrayOf("bigint", quantities));
+                return ps.executeUpdate();
+            }
+        });
+    }
+
+    /**
+     * Recomputes the days in {@code [from, to)} from the movement ledger,
+     * archived months included.
+     *
+     * @param blockWriters lock the table against concurrent imports first; needed
+     *                     when the range covers days imports may still write to
+     * @return rows written
+     */
+    public int rebuild(LocalDate from, LocalDate to, boolean blockWriters) {
+        return jdbcOperations.execute(connection -> {
+            if (blockWriters) {
+                try (Statement st = connection.createStatement()) {
+                    st.execute("LOCK TABLE sales_daily IN SHARE ROW EXCLUSIVE MODE");
+                }
+            }
+            try (PreparedStatement ps = connection.prepareStatement(DELETE_RANGE_SQL)) {
+                ps.setObject(1, from);
+                ps.setObject(2, to);
+                ps.executeUpdate();
+            }
+            try (PreparedStatement ps = connection.prepareStatement(REBUILD_RANGE_SQL)) {
+                OffsetDateTime start = OffsetDateTime.of(from.atStartOfDay(), ZoneOffset.UTC);
+                OffsetDateTime end = OffsetDateTime.of(to.atStartOfDay(), ZoneOffset.UTC);
+                ps.setObject(1, start);
+                ps.setObject(2, end);
+                ps.setObject(3, start);
+                ps.setObject(4, end);
+                return ps.executeUpdate();
+            }
+        });
+    }
+
+    @ReadOnly
+    public @Nullable LocalDate firstSaleDay() {
+        return jdbcOperations.execute(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(FIRST_SALE_DAY_SQL);
+                 ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getObject(1, LocalDate.class) : null;
+            }
+        });
+    }
+
+    /**
+     * Same result as {@link MovementRepository#sumQuantityByProduct} for
+     * SALE_IMPORT over whole UTC days, read from the rollup.
+     */
+    @ReadOnly
+    public List<ProductQuantityTotal> topProducts(@Nullable LocalDate from, @Nullable LocalDate to,
+                                                  @Nullable String location, int limit) {
+        return jdbcOperations.execute(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(TOP_PRODUCTS_SQL)) {
+                ps.setObject(1, from, Types.DATE);
+                ps.setObject(2, to, Types.DATE);
+                ps.setString(3, location);
+                ps.setString(4, location);
+                ps.setInt(5, limit);
+
+                List<ProductQuantityTotal> rows = new ArrayList<>(limit);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        rows.add(new ProductQuantityTotal(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getLong(4)));
+                    }
+                }
+                return rows;
+            }
+        });
+    }
+
+    /**
+     * Quantity sold per day in {@code [from, to)}; days without sales are omitted.
+     */
+    @ReadOnly
+    public List<DailyQuantity> trend(LocalDate from, LocalDate to,
+                                     @Nullable Long productId, @Nullable String location) {
+        return jdbcOperations.execute(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(TREND_SQL)) {
+                ps.setObject(1, from);
+                ps.setObject(2, to);
+                ps.setObject(3, productId, Types.BIGINT);
+                ps.setObject(4, productId, Types.BIGINT);
+                ps.setString(5, location);
+                ps.setString(6, location);
+
+                List<DailyQuantity> rows = new ArrayList<>();
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        rows.add(new DailyQuantity(rs.getObject(1, LocalDate.class), rs.getLong(2)));
+                    }
+                }
+                return rows;
+            }
+        });
+    }
+
+    private record Key(long productId, String location, LocalDate day) implements Comparable<Key> {
+
+        @Override
+        public int compareTo(Key o) {
+            int c = Long.compare(productId, o.productId);
+            if (c != 0) return c;
+            c = location.compareTo(o.location);
+            return c != 0 ? c : day.compareTo(o.day);
+        }
+    }
+
+    public record DailyQuantity(
+            LocalDate day,
+            long quantity
+    ) {}
+}
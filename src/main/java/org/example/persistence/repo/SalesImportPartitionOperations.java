@@ -0,0 +1,139 @@
+package org.example.persistence.repo;
+
+import io.micronaut.data.jdbc.runtime.JdbcOperations;
+import jakarta.inject.Singleton;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Statements on {@code sales_import_partition}: the SKU hash partitions of a
+ * parallel import chunk that are already committed. A partition is recorded in
+ * its own transaction, together with its stock changes.
+ */
+@Singleton
+public class SalesImportPartitionOperations {
+
+    private static final String FIND_SQL = """
+            SELECT partition_no, partitions, content_sha256, missing_skus, processed_skus, quantity_applied
+            FROM sales_import_partition
+            WHERE sales_import_id = ?
+              AND checkpoint_line = ?
+            ORDER BY partition_no
+            """;
+
+    private static final String RECORD_SQL = """
+            INSERT INTO sales_import_partition
+                (sales_import_id, checkpoint_line, partition_no, partitions, content_sha256,
+                 missing_skus, processed_skus, quantity_applied)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private static final String PROGRESS_SQL = """
+            SELECT COUNT(*), MAX(partitions)
+            FROM sales_import_partition
+            WHERE sales_import_id = ?
+            """;
+
+    private static final String CLEAR_SQL = """
+            DELETE FROM sales_import_partition
+            WHERE sales_import_id = ?
+            """;
+
+    private final JdbcOperations jdbcOperations;
+
+    public SalesImportPartitionOperations(JdbcOperations jdbcOperations) {
+        this.jdbcOperations = jdbcOperations;
+    }
+
+    /**
+     * @param checkpointLine checkpoint the chunk starts at, 0 for a whole import
+     */
+    public List<CommittedPartition> find(long importId, int checkpointLine) {
+        return jdbcOperations.execute(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(FIND_SQL)) {
+                ps.setLong(1, importId);
+                ps.setInt(2, checkpointLine);
+                List<CommittedPartition> partitions = new ArrayList<>();
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        partitions.add(new CommittedPartition(
+                                rs.getInt(1), rs.getInt(2), rs.getString(3),
+                                rs.getInt(4), rs.getInt(5), rs.getLong(6)));
+                    }
+                }
+                return partitions;
+            }
+        });
+    }
+
+    /**
+     * Must be called inside the partition's transaction.
+     */
+    public void record(long importId, int checkpointLine, CommittedPartition partition) {
+        jdbcOperations.execute(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(RECORD_SQL)) {
+                ps.setLong(1, importId);
+                ps.setInt(2, checkpointLine);
+                ps.setInt(3, partition.partitionNo());
+                ps.setInt(4, partition.partitions());
+                ps.setString(5, partition.contentSha256());
+                ps.setInt(6, partition.missingSkus());
+                ps.setInt(7, partition.processedSkus());
+                ps.setLong(8, partition.quantityApplied());
+                return ps.executeUpdate();
+            }
+        });
+    }
+
+    /**
+     * Partitions of an import committed so far; only the chunk in progress has
+     * any, they are cleared when it commits.
+     *
+     * @return empty unless the import has partitions committed
+     */
+    public Optional<PartitionProgress> progress(long importId) {
+        return jdbcOperations.execute(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(PROGRESS_SQL)) {
+                ps.setLong(1, importId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    int committed = rs.getInt(1);
+                    return committed == 0
+                            ? Optional.<PartitionProgress>empty()
+                            : Optional.of(new PartitionProgress(committed, rs.getInt(2)));
+                }
+            }
+        });
+    }
+
+    /**
+     * Forgets every recorded partition of an import; called in the transaction
+     * that commits its checkpoint or final status.
+     */
+    public void clear(long importId) {
+        jdbcOperations.execute(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(CLEAR_SQL)) {
+                ps.setLong(1, importId);
+                return ps.executeUpdate();
+            }
+        });
+    }
+
+    /**
+     * @param contentSha256 SHA-256 of the partition's SKU totals; a retry must see the same value
+     */
+    public record CommittedPartition(
+            int partitionNo,
+            int partitions,
+            String contentSha256,
+            int missingSkus,
+            int processedSkus,
+            long quantityApplied
+    ) {}
+
+    public record PartitionProgress(int committed, int partitions) {}
+}
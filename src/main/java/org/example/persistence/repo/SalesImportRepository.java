@@ -1,10 +1,13 @@
 package org.example.persistence.repo;
 
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.data.annotation.Query;
 import io.micronaut.data.jdbc.annotation.JdbcRepository;
 import io.micronaut.data.model.query.builder.sql.Dialect;
 import io.micronaut.data.repository.CrudRepository;
 import org.example.persistence.entity.SalesImportEntity;
 
+import java.util.List;
 import java.util.Optional;
 
 @JdbcRepository(dialect = Dialect.POSTGRES)
@@ -13,4 +16,79 @@ public interface SalesImportRepository extends CrudRepository<SalesImportEntity,
     Optional<SalesImportEntity> findBySha256(String sha256);
 
     SalesImportEntity update(SalesImportEntity entity);
+
+    @Query("""
+            SELECT *
+            FROM sales_import
+            WHERE original_filename = :originalFilename
+              AND status = 'SUCCESS'
+              AND byte_length IS NOT NULL
+            ORDER BY id DESC
+            LIMIT :limit
+            """)
+    List<SalesImportEntity> findLatestSucceeded(String originalFilename, int limit);
+
+    @Query("""
+            UPDATE sales_import
+            SET status = 'PROCESSING',
+                total_lines = :totalLines,
+                base_import_id = CASE WHEN checkpoint_line = 0 THEN :baseImportId ELSE base_import_id END,
+                parent_import_id = :parentImportId,
+                started_at = NULL,
+                finished_at = NULL
+            WHERE id = :id
+              AND status = 'FAILED'
+            """)
+    long requeueFailed(Long id, int totalLines, @Nullable Long baseImportId, @Nullable Long parentImportId);
+
+    @Query("""
+            UPDATE sales_import
+            SET started_at = now()
+            WHERE id = :id
+            """)
+    void markStarted(Long id);
+
+    @Query("""
+            UPDATE sales_import
+            SET processed_lines = GREATEST(processed_lines, :processedLines)
+            WHERE id = :id
+            """)
+    void updateProcessedLines(Long id, int processedLines);
+
+    @Query("""
+            UPDATE sales_import
+            SET checkpoint_line = :checkpointLine,
+                processed_lines = :processedLines
+            WHERE id = :id
+            """)
+    void updateCheckpoint(Long id, int checkpointLine, int processedLines);
+
+    @Query("""
+            UPDATE sales_import
+            SET status = 'SUCCESS',
+                total_lines = :totalLines,
+                checkpoint_line = :totalLines,
+                processed_lines = :processedLines,
+                finished_at = now()
+            WHERE id = :id
+            """)
+    void markSucceeded(Long id, int totalLines, int processedLines);
+
+    @Query("""
+            UPDATE sales_import
+            SET status = 'FAILED',
+                processed_lines = :processedLines,
+                finished_at = now()
+            WHERE id = :id
+            """)
+    void markFailed(Long id, int processedLines);
+
+    @Query("""
+            UPDATE sales_import
+            SET status = 'FAILED',
+                processed_lines = CASE WHEN checkpoint_line = 0 THEN 0 ELSE processed_lines END,
+                finished_at = now()
+            WHERE status = 'PROCESSING'
+            """)
+    long failInterrupted();
 }
@@ -0,0 +1,281 @@
+package org.example.persistence.repo;
+
+import io.micronaut.data.jdbc.runtime.JdbcOperations;
+import jakarta.inject.Singleton;
+import org.example.domain.Location;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Set-based stock statements that take whole batches of products as array
+ * parameters. Must be called inside a transaction.
+ */
+@Singleton
+public class StockBulkOperations {
+
+    /*
+     * Locks the SHOPFLOOR/BACKROOM rows of every requested product in a fixed
+     * (product_id, location) order, plans how much to take from SHOPFLOOR first
+     * and BACKROOM second, and applies the decrements - all in one statement.
+     */
+    private static final String TAKE_SHOPFLOOR_THEN_BACKROOM_SQL = """
+            WITH req AS (
+                SELECT r.product_id, r.qty
+                FROM unnest(?::bigint[], ?::bigint[]) AS r(product_id, qty)
+            ),
+            locked AS (
+                SELECT s.product_id, s.location, s.quantity
+                FROM stock s
+                JOIN req r ON r.product_id = s.product_id
+                ORDER BY s.product_id, s.location
+                FOR UPDATE OF s
+            ),
+            plan AS (
+                SELECT r.product_id,
+                       LEAST(r.qty, COALESCE(sf.quantity, 0)) AS from_shopfloor,
+                       LEAST(r.qty - LEAST(r.qty, COALESCE(sf.quantity, 0)), COALESCE(br.quantity, 0)) AS from_backroom
+                FROM req r
+                LEFT JOIN locked sf ON sf.product_id = r.product_id AND sf.location = 'SHOPFLOOR'
+                LEFT JOIN locked br ON br.product_id = r.product_id AND br.location = 'BACKROOM'
+            ),
+            applied AS (
+                UPDATE stock s
+                SET quantity = s.quantity - CASE WHEN s.location = 'SHOPFLOOR' THEN p.from_shopfloor ELSE p.from_backroom END,
+                    updated_at = now()
+                FROM plan p
+                WHERE s.product_id = p.product_id
+                  AND ((s.location = 'SHOPFLOOR' AND p.from_shopfloor > 0)
+                    OR (s.location = 'BACKROOM' AND p.from_backroom > 0))
+            )
+            SELECT product_id, from_shopfloor, from_backroom
+            FROM plan
+            ORDER BY product_id
+            """;
+
+    private static final String LOCK_SQL = """
+            SELECT product_id, location, quantity
+            FROM stock
+            WHERE product_id = ANY(?)
+            ORDER BY product_id, location
+            FOR UPDATE
+            """;
+
+    private static final String ADD_SQL = """
+            INSERT INTO stock(product_id, location, quantity)
+            VALUES (?, ?, ?)
+            ON CONFLICT (product_id, location)
+            DO UPDATE SET quantity = stock.quantity + EXCLUDED.quantity,
+                          updated_at = now()
+            """;
+
+    /*
+     * Creates the counted rows that do not exist yet, at 0, in (product_id,
+     * location) order. A row a concurrent receipt is inserting is waited for
+     * and left alone, so the statement below locks and compares it.
+     */
+    private static final String CREATE_COUNTED_SQL = """
+            INSERT INTO stock(product_id, location, quantity)
+            SELECT c.product_id, c.location, 0
+            FROM unnest(?::bigint[], ?::varchar[]) AS c(product_id, location)
+            ORDER BY c.product_id, c.location
+            ON CONFLICT (product_id, location) DO NOTHING
+            """;
+
+    /*
+     * Locks the counted rows in (product_id, location) order, keeps the ones
+     * whose quantity differs from the count, and sets them to the count. Every
+     * counted row exists by now (see CREATE_COUNTED_SQL).
+     */
+    private static final String SET_COUNTED_SQL = """
+            WITH counted AS (
+                SELECT c.product_id, c.location, c.quantity
+                FROM unnest(?::bigint[], ?::varchar[], ?::bigint[]) AS c(product_id, location, quantity)
+            ),
+            locked AS (
+                SELECT s.product_id, s.location, s.quantity
+                FROM stock s
+                JOIN counted c ON c.product_id = s.product_id AND c.location = s.location
+                ORDER BY s.product_id, s.location
+                FOR UPDATE OF s
+            ),
+            diff AS (
+                SELECT c.product_id, c.location, l.quantity AS previous, c.quantity AS counted
+                FROM counted c
+                JOIN locked l ON l.product_id = c.product_id AND l.location = c.location
+                WHERE l.quantity <> c.quantity
+            ),
+            applied AS (
+                UPDATE stock s
+                SET quantity = d.counted,
+                    updated_at = now()
+                FROM diff d
+                WHERE s.product_id = d.product_id
+                  AND s.location = d.location
+            )
+            SELECT product_id, location, previous, counted
+            FROM diff
+            ORDER BY product_id, location
+            """;
+
+    private final JdbcOperations jdbcOperations;
+
+    public StockBulkOperations(JdbcOperations jdbcOperations) {
+        this.jdbcOperations = jdbcOperations;
+    }
+
+    /**
+     * Decrements stock for every product, SHOPFLOOR first and BACKROOM for the
+     * remainder, never going below zero. Product ids must be distinct.
+     *
+     * @return how much was actually taken from each location, per product
+     */
+    public List<WaterfallTake> takeShopfloorThenBackroom(long[] productIds, long[] quantities) {
+        if (productIds.length != quantities.length) {
+            throw new IllegalArgumentException("productIds and quantities must have the same length");
+        }
+        if (productIds.length == 0) {
+            return List.of();
+        }
+
+        return jdbcOperations.execute(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(TAKE_SHOPFLOOR_THEN_BACKROOM_SQL)) {
+                ps.setArray(1, bigintArray(connection, productIds));
+                ps.setArray(2, bigintArray(connection, quantities));
+
+                List<WaterfallTake> takes = new ArrayList<>(productIds.length);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        takes.add(new WaterfallTake(rs.getLong(1), rs.getLong(2), rs.getLong(3)));
+                    }
+                }
+                return takes;
+            }
+        });
+    }
+
+    /**
+     * Locks the stock rows of the given products in (product_id, location)
+     * order, so callers that lock overlapping products cannot deadlock.
+     *
+     * @return the locked rows; a product/location without a row is absent
+     */
+    public List<LockedStock> lockForUpdate(long[] productIds) {
+        if (productIds.length == 0) {
+            return List.of();
+        }
+
+        return jdbcOperations.execute(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(LOCK_SQL)) {
+                ps.setArray(1, bigintArray(connection, productIds));
+
+                List<LockedStock> rows = new ArrayList<>(productIds.length * 2);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        rows.add(new LockedStock(rs.getLong(1), Location.valueOf(rs.getString(2)), rs.getLong(3)));
+                    }
+                }
+                return rows;
+            }
+        });
+    }
+
+    /**
+     * Adds a signed quantity to each (product, location), creating missing rows,
+     * as one JDBC batch in the given order. A decrement must not take a row
+     * below zero; callers check that on the rows they locked.
+     */
+    public void addQuantities(long[] productIds, Location[] locations, long[] deltas) {
+        if (productIds.length != locations.length || productIds.length != deltas.length) {
+            throw new IllegalArgumentException("productIds, locations and deltas must have the same length");
+        }
+        if (productIds.length == 0) {
+            return;
+        }
+
+        jdbcOperations.execute(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(ADD_SQL)) {
+                for (int i = 0; i < productIds.length; i++) {
+                    ps.setLong(1, productIds[i]);
+                    ps.setString(2, locations[i].name());
+                    ps.setLong(3, deltas[i]);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Sets each (product, location) to its counted quantity: one statement
+     * creates the missing rows, a second locks, compares and sets them all, so
+     * a receipt that commits in between is counted over, never lost. Pairs
+     * must be distinct. Must be called inside a transaction.
+     *
+     * @return the rows that changed, with their quantity before the count
+     */
+    public List<CountAdjustment> setCounted(long[] productIds, Location[] locations, long[] counted) {
+        if (productIds.length != locations.length || productIds.length != counted.length) {
+            throw new IllegalArgumentException("productIds, locations and counted must have the same length");
+        }
+        if (productIds.length == 0) {
+            return List.of();
+        }
+
+        return jdbcOperations.execute(connection -> {
+            String[] locationNames = new String[locations.length];
+            for (int i = 0; i < locations.length; i++) locationNames[i] = locations[i].name();
+
+            try (PreparedStatement ps = connection.prepareStatement(CREATE_COUNTED_SQL)) {
+                ps.setArray(1, bigintArray(connection, productIds));
+                ps.setArray(2, connection.createArrayOf("varchar", locationNames));
+                ps.executeUpdate();
+            }
+            try (PreparedStatement ps = connection.prepareStatement(SET_COUNTED_SQL)) {
+                ps.setArray(1, bigintArray(connection, productIds));
+                ps.setArray(2, connection.createArrayOf("varchar", locationNames));
+                ps.setArray(3, bigintArray(connection, counted));
+
+                List<CountAdjustment> adjustments = new ArrayList<>();
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        adjustments.add(new CountAdjustment(
+                                rs.getLong(1), Location.valueOf(rs.getString(2)), rs.getLong(3), rs.getLong(4)));
+                    }
+                }
+                return adjustments;
+            }
+        });
+    }
+
+    static Array bigintArray(Connection connection, long[] values) throws SQLException {
+        Long[] boxed = new Long[values.length];
+        for (int i = 0; i < values.length; i++) boxed[i] = values[i];
+        return connection.createArrayOf("bigint", boxed);
+    }
+
+    public record CountAdjustment(
+            long productId,
+            Location location,
+            long previous,
+            long counted
+    ) {}
+
+    public record LockedStock(
+            long productId,
+            Location location,
+            long quantity
+    ) {}
+
+    public record WaterfallTake(
+            long productId,
+            long fromShopfloor,
+            long fromBackroom
+    ) {}
+}
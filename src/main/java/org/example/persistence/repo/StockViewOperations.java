@@ -0,0 +1,142 @@
+package org.example.persistence.repo;
+
+import io.micronaut.core.annotation.Nullable;
+import io.micronaut.data.jdbc.runtime.JdbcOperations;
+import jakarta.inject.Singleton;
+import org.example.domain.dto.StockView;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * One page of the stock view in a single statement: BACKROOM and SHOPFLOOR
+ * are pivoted and {@code low} computed in SQL (active products only, reserved
+ * stock not counted, as in the {@code StockSnapshot}); the reserved quantities
+ * are passed in as arrays. Pages continue after the sort key of the previous
+ * page. Products are walked in index order and stock is looked up per product,
+ * so a page reads about {@code limit} products (more with {@code low}, as the
+ * filter is applied on the way).
+ */
+@Singleton
+public class StockViewOperations {
+
+    private static final String SELECT = """
+            SELECT p.id, p.sku, p.name, p.unit, p.min_total,
+                   COALESCE(s.backroom, 0)  AS backroom_qty,
+                   COALESCE(s.shopfloor, 0) AS shopfloor_qty,
+                   COALESCE(r.reserved, 0)  AS reserved_qty,
+                   p.active AND COALESCE(s.backroom, 0) + COALESCE(s.shopfloor, 0) - COALESCE(r.reserved, 0)
+                       < p.min_total AS low
+            FROM product p
+            LEFT JOIN LATERAL (
+                SELECT SUM(quantity) FILTER (WHERE location = 'BACKROOM')  AS backroom,
+                       SUM(quantity) FILTER (WHERE location = 'SHOPFLOOR') AS shopfloor
+                FROM stock
+                WHERE product_id = p.id
+            ) s ON TRUE
+            LEFT JOIN unnest(?::bigint[], ?::bigint[]) AS r(product_id, reserved) ON r.product_id = p.id
+            WHERE TRUE""";
+
+    private final JdbcOperations jdbcOperations;
+
+    public StockViewOperations(JdbcOperations jdbcOperations) {
+        this.jdbcOperations = jdbcOperations;
+    }
+
+    /**
+     * @param query    matched case-insensitively anywhere in name or SKU, over
+     *                 inactive products too; without it only active products are listed
+     * @param afterKey with {@code afterId}, the sort key of the last row of the previous page
+     * @param reserved total reserved quantity per product, products without reservations absent
+     */
+    public List<StockView> page(@Nullable String query,
+                                boolean lowOnly,
+                                Sort sort,
+                                @Nullable String afterKey,
+                                @Nullable Long afterId,
+                                int limit,
+                                Map<Long, Long> reserved) {
+        StringBuilder sql = new StringBuilder(SELECT);
+        List<Object> params = new ArrayList<>();
+
+        if (query == null) {
+            sql.append(" AND p.active");
+        } else {
+            // same expressions as the trigram indexes
+            String pattern = "%" + escapeLike(query.toLowerCase(Locale.ROOT)) + "%";
+            sql.append(" AND (LOWER(p.name) LIKE ? OR LOWER(p.sku) LIKE ?)");
+            params.add(pattern);
+            params.add(pattern);
+        }
+        if (lowOnly) {
+            sql.append(" AND p.active AND COALESCE(s.backroom, 0) + COALESCE(s.shopfloor, 0)"
+                    + " - COALESCE(r.reserved, 0) < p.min_total");
+        }
+        if (afterKey != null && afterId != null) {
+            if (sort == Sort.SKU) {
+                sql.append(" AND p.sku > ?");
+                params.add(afterKey);
+            } else {
+                sql.append(" AND (p.name, p.id) > (?, ?)");
+                params.add(afterKey);
+                params.add(afterId);
+            }
+        }
+        sql.append(sort == Sort.SKU ? " ORDER BY p.sku" : " ORDER BY p.name, p.id");
+        sql.append(" LIMIT ?");
+        params.add(limit);
+
+        long[] reservedIds = new long[reserved.size()];
+        long[] reservedQuantities = new long[reserved.size()];
+        int k = 0;
+        for (Map.Entry<Long, Long> e : reserved.entrySet()) {
+            reservedIds[k] = e.getKey();
+            reservedQuantities[k] = e.getValue();
+            k++;
+        }
+
+        return jdbcOperations.execute(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(sql.toString())) {
+                ps.setArray(1, StockBulkOperations.bigintArray(connection, reservedIds));
+                ps.setArray(2, StockBulkOperations.bigintArray(connection, reservedQuantities));
+                for (int i = 0; i < params.size(); i++) {
+                    ps.setObject(i + 3, params.get(i));
+                }
+                List<StockView> rows = new ArrayList<>(limit);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        long backroom = rs.getLong("backroom_qty");
+                        long shopfloor = rs.getLong("shopfloor_qty");
+                        long reservedQty = rs.getLong("reserved_qty");
+                        rows.add(new StockView(
+                                rs.getLong("id"),
+                                rs.getString("sku"),
+                                rs.getString("name"),
+                                rs.getString("unit"),
+                                rs.getInt("min_total"),
+                                (int) backroom,
+                                (int) shopfloor,
+                                (int) (backroom + shopfloor),
+                                (int) reservedQty,
+                                rs.getBoolean("low")
+                        ));
+                    }
+                }
+                return rows;
+            }
+        });
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    public enum Sort {
+        NAME,
+        SKU
+    }
+}
@@ -0,0 +1,87 @@
+package org.example.persistence.repo;
+
+import io.micronaut.data.jdbc.runtime.JdbcOperations;
+import jakarta.inject.Singleton;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+
+/**
+ * PostgreSQL transaction ids and snapshots, used to tell whether a committed
+ * change is already contained in data read under a snapshot. Must be called
+ * inside a transaction.
+ */
+@Singleton
+public class TransactionSnapshotOperations {
+
+    private final JdbcOperations jdbcOperations;
+
+    public TransactionSnapshotOperations(JdbcOperations jdbcOperations) {
+        this.jdbcOperations = jdbcOperations;
+    }
+
+    /**
+     * Id of the current transaction (64-bit, epoch-extended); assigns one if the
+     * transaction has none yet.
+     */
+    public long currentTransactionId() {
+        return jdbcOperations.execute(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement("SELECT txid_current()");
+                 ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        });
+    }
+
+    /**
+     * Switches the current transaction to REPEATABLE READ, so every later read in
+     * it sees the returned snapshot. Must be the first statement of the transaction.
+     */
+    public TxidSnapshot repeatableReadSnapshot() {
+        return jdbcOperations.execute(connection -> {
+            try (Statement st = connection.createStatement()) {
+                st.execute("SET TRANSACTION ISOLATION LEVEL REPEATABLE READ");
+            }
+            try (PreparedStatement ps = connection.prepareStatement("SELECT txid_current_snapshot()::text");
+                 ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return TxidSnapshot.parse(rs.getString(1));
+            }
+        });
+    }
+
+    /**
+     * A {@code txid_snapshot}: transactions below {@code xmin} had finished,
+     * transactions from {@code xmax} on had not started, and those in
+     * {@code inProgress} were running when it was taken.
+     */
+    public record TxidSnapshot(long xmin, long xmax, long[] inProgress) {
+
+        /**
+         * Parses the text form {@code xmin:xmax:xip,xip,...}.
+         */
+        public static TxidSnapshot parse(String text) {
+            String[] parts = text.split(":", -1);
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Not a txid_snapshot: " + text);
+            }
+            long[] inProgress = parts[2].isEmpty()
+                    ? new long[0]
+                    : Arrays.stream(parts[2].split(",")).mapToLong(Long::parseLong).sorted().toArray();
+            return new TxidSnapshot(Long.parseLong(parts[0]), Long.parseLong(parts[1]), inProgress);
+        }
+
+        /**
+         * Whether the changes of a committed transaction are visible under this
+         * snapshot. An unknown id ({@code <= 0}) is never visible.
+         */
+        public boolean includes(long txid) {
+            if (txid <= 0 || txid >= xmax) return false;
+            if (txid < xmin) return true;
+            return Arrays.binarySearch(inProgress, txid) < 0;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+-- V10__movement_search_indexes.sql
+
+-- time-range scans across all products; tiny, and effective because rows arrive in occurred_at order
+create index if not exists brin_movement_occurred_at on movement using brin (occurred_at);
+
+-- movement search keyset order (occurred_at desc, id desc) per filter
+drop index if exists idx_movement_sales_import_id;
+create index if not exists idx_movement_sales_import_occurred_at
+    on movement(sales_import_id, occurred_at desc, id desc)
+    where sales_import_id is not null;
+create index if not exists idx_movement_from_location_occurred_at
+    on movement(from_location, occurred_at desc, id desc)
+    where from_location is not null;
+create index if not exists idx_movement_to_location_occurred_at
+    on movement(to_location, occurred_at desc, id desc)
+    where to_location is not null;
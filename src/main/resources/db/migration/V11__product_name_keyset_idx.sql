@@ -0,0 +1,4 @@
+-- V11__product_name_keyset_idx.sql
+
+-- keyset order of the paginated stock view; sku pages use the unique index on sku
+create index if not exists idx_product_name_id on product(name, id);
@@ -0,0 +1,11 @@
+-- V12__product_search_indexes.sql
+
+create extension if not exists pg_trgm;
+
+-- substring search (3+ characters) on name and sku
+create index if not exists idx_product_name_trgm on product using gin (lower(name) gin_trgm_ops);
+create index if not exists idx_product_sku_trgm on product using gin (lower(sku) gin_trgm_ops);
+
+-- prefix search, for queries too short to have a trigram
+create index if not exists idx_product_sku_prefix on product (lower(sku) text_pattern_ops);
+create index if not exists idx_product_name_prefix on product (lower(name) text_pattern_ops);
@@ -0,0 +1,6 @@
+-- V13__movement_adjustment_type.sql
+
+-- stocktake corrections are recorded as ADJUSTMENT movements
+alter table movement drop constraint if exists movement_type_chk;
+alter table movement add constraint movement_type_chk
+    check (type in ('RECEIPT','ISSUE','TRANSFER','SALE_IMPORT','ADJUSTMENT'));
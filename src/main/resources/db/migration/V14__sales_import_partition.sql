@@ -0,0 +1,15 @@
+-- V14__sales_import_partition.sql
+
+-- SKU hash partitions of a parallel import that are committed, keyed by the checkpoint
+-- the chunk starts at; a retry skips them, the import's final commit deletes them
+create table if not exists sales_import_partition (
+    sales_import_id bigint not null references sales_import(id) on delete cascade,
+    checkpoint_line integer not null,
+    partition_no    integer not null,
+    partitions      integer not null,
+    content_hash    integer not null,
+    missing_skus    integer not null,
+    processed_skus  integer not null,
+    quantity_applied bigint not null,
+    primary key (sales_import_id, checkpoint_line, partition_no)
+    );
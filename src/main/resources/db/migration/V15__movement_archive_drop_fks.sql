@@ -0,0 +1,18 @@
+-- V15__movement_archive_drop_fks.sql
+
+-- months archived before this version kept the foreign keys they inherited from
+-- movement; movement_archive is meant to have none
+do $$
+declare
+    fk record;
+begin
+    for fk in
+        select c.conrelid::regclass as tbl, c.conname
+        from pg_constraint c
+        join pg_inherits i on i.inhrelid = c.conrelid
+        where i.inhparent = 'movement_archive'::regclass
+          and c.contype = 'f'
+    loop
+        execute format('alter table %s drop constraint %I', fk.tbl, fk.conname);
+    end loop;
+end $$;
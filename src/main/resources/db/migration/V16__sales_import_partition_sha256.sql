@@ -0,0 +1,7 @@
+-- V16__sales_import_partition_sha256.sql
+
+-- partitions are checked by a SHA-256 of their sorted (sku, qty) pairs instead of a
+-- 32-bit hash code; partitions recorded before no longer match, so a retry of such a
+-- chunk is refused rather than skipping a partition it cannot verify
+alter table sales_import_partition rename column content_hash to content_sha256;
+alter table sales_import_partition alter column content_sha256 type varchar(64) using content_sha256::text;
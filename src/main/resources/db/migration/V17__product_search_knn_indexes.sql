@@ -0,0 +1,6 @@
+-- V17__product_search_knn_indexes.sql
+
+-- nearest-first trigram scans (ORDER BY lower(x) <-> query) for the product search
+-- candidates; the GIN indexes of V12 stay for unordered substring filters
+create index if not exists idx_product_name_trgm_gist on product using gist (lower(name) gist_trgm_ops);
+create index if not exists idx_product_sku_trgm_gist on product using gist (lower(sku) gist_trgm_ops);
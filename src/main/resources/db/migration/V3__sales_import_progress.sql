@@ -0,0 +1,4 @@
+-- V3__sales_import_progress.sql
+
+alter table sales_import add column if not exists started_at timestamptz;
+alter table sales_import add column if not exists finished_at timestamptz;
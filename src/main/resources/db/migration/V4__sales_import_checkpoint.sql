@@ -0,0 +1,4 @@
+-- V4__sales_import_checkpoint.sql
+
+-- last source row (1-based, blank lines not counted) whose stock changes are committed
+alter table sales_import add column if not exists checkpoint_line integer not null default 0;
@@ -0,0 +1,8 @@
+-- V5__sales_import_delta.sql
+
+-- size of the uploaded file; a later upload whose first byte_length bytes hash to sha256 extends it
+alter table sales_import add column if not exists byte_length bigint;
+-- set on incremental imports: only the bytes after the base import's byte_length were applied
+alter table sales_import add column if not exists base_import_id bigint references sales_import(id) on delete restrict;
+
+create index if not exists idx_sales_import_filename_success on sales_import(original_filename, id desc) where status = 'SUCCESS';
@@ -0,0 +1,6 @@
+-- V6__sales_import_archive.sql
+
+-- set on the per-file rows of an archive upload; stock movements reference the archive row
+alter table sales_import add column if not exists parent_import_id bigint references sales_import(id) on delete cascade;
+
+create index if not exists idx_sales_import_parent on sales_import(parent_import_id);
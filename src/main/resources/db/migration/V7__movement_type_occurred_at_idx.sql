@@ -0,0 +1,6 @@
+-- V7__movement_type_occurred_at_idx.sql
+
+-- top-sales style aggregates: range scan on (type, occurred_at), answered from the index alone
+create index if not exists idx_movement_type_occurred_at
+    on movement(type, occurred_at)
+    include (product_id, quantity, from_location, to_location);
@@ -0,0 +1,14 @@
+-- V8__sales_daily.sql
+
+-- SALE_IMPORT quantities per product, source location and UTC day; maintained by the
+-- sales import in the same transaction as the movements, rebuilt by the backfill
+create table if not exists sales_daily (
+    product_id bigint not null references product(id) on delete cascade,
+    location   varchar(32) not null,
+    day        date not null,
+    quantity   bigint not null,
+    primary key (product_id, location, day),
+    constraint sales_daily_location_chk check (location in ('BACKROOM','SHOPFLOOR'))
+    );
+
+create index if not exists idx_sales_daily_day on sales_daily(day) include (product_id, location, quantity);
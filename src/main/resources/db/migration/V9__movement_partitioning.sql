@@ -0,0 +1,82 @@
+-- V9__movement_partitioning.sql
+--
+-- Range-partitions movement by month of occurred_at (UTC). Partitions are named
+-- movement_YYYY_MM; MovementPartitionMaintenance creates future months and moves
+-- months past the retention into movement_archive. The primary key has to include
+-- the partition key, so it becomes (id, occurred_at); ids still come from the
+-- same sequence and stay unique.
+
+alter table movement rename to movement_legacy;
+alter index movement_pkey rename to movement_legacy_pkey;
+alter sequence movement_id_seq owned by none;
+
+create table movement (
+    id              bigint not null default nextval('movement_id_seq'),
+    product_id      bigint not null references product(id) on delete restrict,
+    type            varchar(16) not null,
+    from_location   varchar(16),
+    to_location     varchar(16),
+    quantity        integer not null,
+    occurred_at     timestamptz not null default now(),
+    note            varchar(500),
+    sales_import_id bigint references sales_import(id) on delete set null,
+    constraint movement_pkey primary key (id, occurred_at),
+    constraint movement_type_chk check (type in ('RECEIPT','ISSUE','TRANSFER','SALE_IMPORT')),
+    constraint movement_quantity_chk check (quantity > 0),
+    constraint movement_from_loc_chk check (from_location is null or from_location in ('BACKROOM','SHOPFLOOR')),
+    constraint movement_to_loc_chk check (to_location is null or to_location in ('BACKROOM','SHOPFLOOR'))
+) partition by range (occurred_at);
+
+alter sequence movement_id_seq owned by movement.id;
+
+-- catches rows outside every monthly partition; expected to stay empty
+create table movement_default partition of movement default;
+
+do $$
+declare
+    first_month date;
+    m date;
+begin
+    select date_trunc('month', coalesce(min(occurred_at), now()) at time zone 'UTC')::date
+    into first_month
+    from movement_legacy;
+
+    for m in
+        select generate_series(first_month,
+                               (date_trunc('month', now() at time zone 'UTC') + interval '3 months')::date,
+                               interval '1 month')::date
+    loop
+        execute format('create table if not exists %I partition of movement for values from (%L) to (%L)',
+                       'movement_' || to_char(m, 'YYYY_MM'),
+                       m::text || ' 00:00:00+00',
+                       (m + interval '1 month')::date::text || ' 00:00:00+00');
+    end loop;
+end $$;
+
+insert into movement (id, product_id, type, from_location, to_location, quantity, occurred_at, note, sales_import_id)
+select id, product_id, type, from_location, to_location, quantity, occurred_at, note, sales_import_id
+from movement_legacy;
+
+drop table movement_legacy;
+
+create index if not exists idx_movement_product_occurred_at on movement(product_id, occurred_at desc);
+create index if not exists idx_movement_sales_import_id on movement(sales_import_id);
+create index if not exists idx_movement_type_occurred_at
+    on movement(type, occurred_at)
+    include (product_id, quantity, from_location, to_location);
+
+-- months detached from movement once they are past the retention; same shape, no foreign keys
+create table if not exists movement_archive (
+    id              bigint not null,
+    product_id      bigint not null,
+    type            varchar(16) not null,
+    from_location   varchar(16),
+    to_location     varchar(16),
+    quantity        integer not null,
+    occurred_at     timestamptz not null,
+    note            varchar(500),
+    sales_import_id bigint,
+    constraint movement_archive_pkey primary key (id, occurred_at)
+) partition by range (occurred_at);
+
+create index if not exists idx_movement_archive_product_occurred_at on movement_archive(product_id, occurred_at desc);
@@ -0,0 +1,31 @@
+package org.example.domain.service
+
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+
+/**
+ * Runs one task on many threads at once, for specs of code that callers race on.
+ */
+final class ConcurrentCallers {
+
+    private ConcurrentCallers() {}
+
+    /**
+     * Runs {@code task} on {@code callers} threads released together and
+     * returns their results.
+     */
+    static <T> List<T> concurrently(int callers, Closure<T> task) {
+        def pool = Executors.newFixedThreadPool(callers)
+        try {
+            def start = new CountDownLatch(1)
+            def futures = (1..callers).collect {
+                pool.submit({ start.await(); task() } as Callable<T>)
+            }
+            start.countDown()
+            futures*.get()
+        } finally {
+            pool.shutdownNow()
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.example.domain.service
+
+import io.micronaut.transaction.TransactionOperations
+import io.micronaut.transaction.TransactionStatus
+import org.example.domain.BatchMode
+import org.example.domain.Location
+import org.example.domain.MovementType
+import org.example.domain.dto.MovementCommand
+import org.example.domain.exception.NotFoundException
+import org.example.domain.service.ProductLookupCache.ProductInfo
+import org.example.persistence.repo.MovementBulkWriter
+import org.example.persistence.repo.StockBulkOperations
+import org.example.persistence.repo.StockBulkOperations.LockedStock
+import spock.lang.Specification
+
+import java.sql.Connection
+
+class MovementBatchServiceSpec extends Specification {
+
+    ProductLookupCache productLookupCache = Stub() {
+        require(1L) >> new ProductInfo(1L, true, 0)
+        require(9L) >> { throw new NotFoundException("Product not found: 9") }
+    }
+    StockBulkOperations stockBulkOperations = Mock() {
+        lockForUpdate(_) >> [
+                new LockedStock(1L, Location.BACKROOM, 2),
+                new LockedStock(1L, Location.SHOPFLOOR, 5)
+        ]
+    }
+    MovementBulkWriter movementBulkWriter = Mock()
+    StockEventPublisher stockEventPublisher = Mock()
+    TransactionStatus<Connection> status = Stub()
+    TransactionOperations<Connection> transactionOperations = Stub() {
+        findTransactionStatus() >> Optional.of(status)
+    }
+    ReservedStock reservedStock = new ReservedStock(transactionOperations)
+
+    MovementBatchService service = new MovementBatchService(
+            productLookupCache, stockBulkOperations, movementBulkWriter, reservedStock, stockEventPublisher)
+
+    List<MovementCommand> mixed = [
+            receipt(3),
+            issue(10, Location.SHOPFLOOR),
+            new MovementCommand(MovementType.ISSUE, 9L, 1, Location.SHOPFLOOR, null, null)
+    ]
+
+    def "an all-or-nothing batch with a rejected line writes nothing"() {
+        when:
+        def result = service.apply(mixed, BatchMode.ALL_OR_NOTHING)
+
+        then:
+        result.applied() == 0
+        result.rejected() == 2
+        result.lines()*.status() == ["NOT_APPLIED", "REJECTED", "REJECTED"]
+        result.lines()*.error() == [null, "Not enough quantity at SHOPFLOOR", "Product not found: 9"]
+        0 * stockBulkOperations.addQuantities(*_)
+        0 * movementBulkWriter._
+        0 * stockEventPublisher._
+    }
+
+    def "a partial batch applies only the valid lines"() {
+        when:
+        def result = service.apply(mixed, BatchMode.PARTIAL)
+
+        then:
+        result.applied() == 1
+        result.rejected() == 2
+        result.lines()*.status() == ["APPLIED", "REJECTED", "REJECTED"]
+        1 * stockBulkOperations.addQuantities([1L] as long[], [Location.BACKROOM] as Location[], [3L] as long[])
+        1 * movementBulkWriter.write({ it*.type() == [MovementType.RECEIPT] && it*.quantity() == [3] })
+        1 * stockEventPublisher.stockChanged(_)
+    }
+
+    def "lines are checked in request order against the stock earlier lines took and brought"() {
+        when:
+        def result = service.apply([
+                issue(3, Location.SHOPFLOOR),
+                issue(3, Location.SHOPFLOOR),
+                new MovementCommand(MovementType.TRANSFER, 1L, 2, Location.BACKROOM, Location.SHOPFLOOR, null),
+                issue(4, Location.SHOPFLOOR),
+                issue(1, Location.BACKROOM)
+        ], BatchMode.PARTIAL)
+
+        then: "5 on the shop floor: 3 taken, 3 refused, 2 brought over, 4 taken; the backroom is empty by then"
+        result.lines()*.status() == ["APPLIED", "REJECTED", "APPLIED", "APPLIED", "REJECTED"]
+        1 * stockBulkOperations.addQuantities(
+                [1L, 1L] as long[], [Location.BACKROOM, Location.SHOPFLOOR] as Location[], [-2L, -5L] as long[])
+        1 * movementBulkWriter.write({ it*.quantity() == [3, 2, 4] })
+    }
+
+    def "reserved stock is left in place"() {
+        given:
+        reservedStock.tryReserve(1L, Location.SHOPFLOOR, 4, { 5L })
+
+        when:
+        def result = service.apply([issue(2, Location.SHOPFLOOR), issue(1, Location.SHOPFLOOR)], BatchMode.PARTIAL)
+
+        then:
+        result.lines()*.status() == ["REJECTED", "APPLIED"]
+        1 * stockBulkOperations.addQuantities([1L] as long[], [Location.SHOPFLOOR] as Location[], [-1L] as long[])
+        reservedStock.reserved(1L, Location.SHOPFLOOR) == 4
+    }
+
+    private static MovementCommand receipt(long qty) {
+        new MovementCommand(MovementType.RECEIPT, 1L, qty, null, Location.BACKROOM, null)
+    }
+
+    private static MovementCommand issue(long qty, Location from) {
+        new MovementCommand(MovementType.ISSUE, 1L, qty, from, null, null)
+    }
+}
@@ -0,0 +1,155 @@
+package org.example.domain.service
+
+import io.micronaut.transaction.TransactionOperations
+import io.micronaut.transaction.TransactionStatus
+import io.micronaut.transaction.support.TransactionSynchronization
+import org.example.config.ReservationConfiguration
+import org.example.domain.Location
+import org.example.domain.exception.InsufficientStockException
+import org.example.domain.exception.NotFoundException
+import org.example.persistence.entity.ProductEntity
+import org.example.persistence.entity.StockEntity
+import org.example.persistence.entity.StockId
+import org.example.persistence.repo.MovementCommandOperations.MovementOutcome
+import org.example.persistence.repo.MovementCommandOperations.Status
+import org.example.persistence.repo.ProductRepository
+import org.example.persistence.repo.StockRepository
+import org.example.persistence.repo.TransactionSnapshotOperations
+import org.example.persistence.repo.TransactionSnapshotOperations.TxidSnapshot
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.sql.Connection
+import java.time.Duration
+
+import static org.example.domain.service.ConcurrentCallers.concurrently
+
+class ReservationServiceSpec extends Specification {
+
+    List<TransactionSynchronization> synchronizations = []
+    TransactionStatus<Connection> status = Stub() {
+        registerSynchronization(_) >> { TransactionSynchronization sync -> synchronizations << sync }
+    }
+    TransactionOperations<Connection> transactionOperations = Stub() {
+        findTransactionStatus() >> Optional.of(status)
+        executeRead(_) >> { args -> args[0].apply(status) }
+    }
+    ProductRepository productRepository = Stub() {
+        findAll() >> [new ProductEntity(1L, "SKU-1", "Apple", "pcs", 2, true, null, null)]
+    }
+    StockRepository stockRepository = Stub() {
+        findAll() >> [new StockEntity(new StockId(1L, Location.SHOPFLOOR), 10, null)]
+    }
+    TransactionSnapshotOperations transactionSnapshotOperations = Stub() {
+        repeatableReadSnapshot() >> new TxidSnapshot(100, 100, new long[0])
+    }
+
+    ReservedStock reservedStock = new ReservedStock(transactionOperations)
+    StockSnapshot stockSnapshot = new StockSnapshot(
+            productRepository, stockRepository, reservedStock, transactionSnapshotOperations, transactionOperations)
+    MovementService movementService = Mock()
+    ReservationConfiguration configuration = new ReservationConfiguration(timerTick: Duration.ofMillis(10))
+
+    ReservationService service = new ReservationService(stockSnapshot, reservedStock, movementService, configuration)
+
+    def cleanup() {
+        service.stop()
+    }
+
+    def "concurrent reservations never hold more than is on hand"() {
+        when:
+        def outcomes = concurrently(20) {
+            try {
+                service.reserve(1L, 1, Location.SHOPFLOOR, null)
+                true
+            } catch (InsufficientStockException ignored) {
+                false
+            }
+        }
+
+        then:
+        outcomes.count { it } == 10
+        reservedStock.reserved(1L, Location.SHOPFLOOR) == 10
+    }
+
+    def "reserved stock is kept from issues and from the minimum"() {
+        when:
+        service.reserve(1L, 9, Location.SHOPFLOOR, null)
+
+        then:
+        reservedStock.beginIssue(1L, Location.SHOPFLOOR, 1) == 9
+        stockSnapshot.find(1L).get().reservedQty() == 9
+        stockSnapshot.lowView(Optional.empty())*.productId() == [1L]
+    }
+
+    def "confirming issues the reserved stock and ends the reservation"() {
+        given:
+        def id = UUID.fromString(service.reserve(1L, 4, Location.SHOPFLOOR, null).reservationId())
+
+        when:
+        def outcome = service.confirm(id)
+
+        then:
+        1 * movementService.issueReserved(1L, 4, Location.SHOPFLOOR, "reservation $id".toString()) >>
+                new MovementOutcome(Status.APPLIED, 77L, 500L)
+        outcome.movementId() == 77L
+        reservedStock.reserved(1L, Location.SHOPFLOOR) == 0
+        stockSnapshot.lowView(Optional.empty()).isEmpty()
+
+        when:
+        service.confirm(id)
+
+        then:
+        0 * movementService._
+        thrown(NotFoundException)
+    }
+
+    def "a confirm that finds the stock gone still ends the reservation"() {
+        given:
+        def id = UUID.fromString(service.reserve(1L, 4, Location.SHOPFLOOR, null).reservationId())
+
+        when:
+        service.confirm(id)
+
+        then:
+        1 * movementService.issueReserved(*_) >> { throw new InsufficientStockException("Not enough") }
+        thrown(InsufficientStockException)
+        reservedStock.reserved(1L, Location.SHOPFLOOR) == 0
+    }
+
+    def "an expired reservation releases its stock"() {
+        given:
+        def id = UUID.fromString(service.reserve(1L, 10, Location.SHOPFLOOR, Duration.ofMillis(50)).reservationId())
+
+        expect:
+        new PollingConditions(timeout: 2).eventually {
+            assert reservedStock.reserved(1L, Location.SHOPFLOOR) == 0
+        }
+        service.reserve(1L, 10, Location.SHOPFLOOR, null)
+
+        when:
+        service.confirm(id)
+
+        then:
+        thrown(NotFoundException)
+    }
+
+    def "stock being issued cannot be reserved until the issue has completed"() {
+        given: "an issue of 8 is committing; the snapshot still shows 10"
+        reservedStock.beginIssue(1L, Location.SHOPFLOOR, 8)
+
+        when:
+        service.reserve(1L, 5, Location.SHOPFLOOR, null)
+
+        then:
+        thrown(InsufficientStockException)
+        reservedStock.reserved(1L, Location.SHOPFLOOR) == 0
+
+        when: "it rolls back"
+        synchronizations*.afterCompletion(TransactionSynchronization.Status.ROLLED_BACK)
+        service.reserve(1L, 5, Location.SHOPFLOOR, null)
+
+        then:
+        reservedStock.reserved(1L, Location.SHOPFLOOR) == 5
+    }
+}
@@ -0,0 +1,205 @@
+package org.example.domain.service
+
+import io.micronaut.transaction.TransactionOperations
+import org.example.config.SalesImportConfiguration
+import org.example.domain.SalesImportStatus
+import org.example.domain.service.SalesImportApplier.ApplyResult
+import org.example.domain.service.SalesImportApplier.ProgressListener
+import org.example.persistence.entity.SalesImportEntity
+import org.example.persistence.repo.MovementSearchOperations
+import org.example.persistence.repo.MovementSearchOperations.SalesImportTotals
+import org.example.persistence.repo.SalesImportPartitionOperations
+import org.example.persistence.repo.SalesImportPartitionOperations.CommittedPartition
+import spock.lang.Specification
+
+import java.nio.charset.StandardCharsets
+import java.sql.Connection
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.atomic.AtomicInteger
+
+class SalesImportServiceSpec extends Specification {
+
+    static final int PARTITIONS = 4
+
+    SalesImportTracker tracker = Mock()
+    SalesImportApplier applier = Mock()
+    SalesImportPartitionOperations partitionOperations = Mock()
+    MovementSearchOperations movementSearchOperations = Stub()
+    ProductLookupCache productLookupCache = Stub() {
+        idsBySku(_) >> { Collection<String> skus -> skus.findAll { it.startsWith("SKU-") }.collectEntries { [it, 1L] } }
+    }
+    SalesImportConfiguration configuration = new SalesImportConfiguration(parallelism: PARTITIONS)
+    TransactionOperations<Connection> transactionOperations = Stub() {
+        executeWrite(_) >> { args -> args[0].apply(null) }
+    }
+
+    SalesImportService service = new SalesImportService(
+            tracker, applier, partitionOperations, movementSearchOperations, productLookupCache,
+            configuration, transactionOperations)
+
+    Map<String, Long> qtyBySku = (1..40).collectEntries { ["SKU-$it".toString(), (long) it] }
+
+    def "partitions commit on their own and their results add up to the sequential result"() {
+        given:
+        def committedParts = new CopyOnWriteArrayList<Map<String, Long>>()
+        def inCommitRuns = 0
+
+        when:
+        def result = service.applyAndCommit(qtyBySku, 7L, 0, "note", ProgressListener.NONE, { inCommitRuns++ })
+
+        then:
+        1 * partitionOperations.find(7L, 0) >> []
+        PARTITIONS * applier.apply(_, 7L, "note", ProgressListener.NONE) >> { Map<String, Long> part, Long id, String note, ProgressListener l ->
+            committedParts << new LinkedHashMap<>(part)
+            applied(part)
+        }
+        PARTITIONS * partitionOperations.record(7L, 0, _ as CommittedPartition)
+        1 * partitionOperations.clear(7L)
+
+        and:
+        inCommitRuns == 1
+        committedParts*.keySet().flatten().toSet() == qtyBySku.keySet()
+        committedParts.every { part -> part.keySet().collect { partitionOf(it) }.unique().size() == 1 }
+        result == applied(qtyBySku)
+    }
+
+    def "a failed partition keeps the others committed and a retry applies only the missing one"() {
+        given:
+        configuration.partitionRetries = 0
+        def failing = partitionOf("SKU-1")
+        def recorded = new CopyOnWriteArrayList<CommittedPartition>()
+        def inCommitRuns = 0
+
+        when: "one partition fails"
+        service.applyAndCommit(qtyBySku, 7L, 0, "note", ProgressListener.NONE, { inCommitRuns++ })
+
+        then:
+        1 * partitionOperations.find(7L, 0) >> []
+        PARTITIONS * applier.apply(_, 7L, "note", ProgressListener.NONE) >> { Map<String, Long> part, Long id, String note, ProgressListener l ->
+            if (part.containsKey("SKU-1")) throw new IllegalStateException("boom")
+            applied(part)
+        }
+        (PARTITIONS - 1) * partitionOperations.record(7L, 0, _ as CommittedPartition) >> { Long id, int line, CommittedPartition p ->
+            recorded << p
+        }
+        0 * partitionOperations.clear(_)
+        def ex = thrown(IllegalStateException)
+        ex.message == "boom"
+        inCommitRuns == 0
+        !recorded.any { it.partitionNo() == failing }
+
+        when: "the import is retried"
+        def result = service.applyAndCommit(qtyBySku, 7L, 0, "note", ProgressListener.NONE, { inCommitRuns++ })
+
+        then:
+        1 * partitionOperations.find(7L, 0) >> recorded.sort { it.partitionNo() }
+        1 * applier.apply({ Map part -> part.containsKey("SKU-1") }, 7L, "note", ProgressListener.NONE) >> { Map<String, Long> part, Long id, String note, ProgressListener l ->
+            applied(part)
+        }
+        1 * partitionOperations.record(7L, 0, { it.partitionNo() == failing })
+        1 * partitionOperations.clear(7L)
+        inCommitRuns == 1
+        result == applied(qtyBySku)
+    }
+
+    def "a failed partition is retried on its own before the import fails"() {
+        given:
+        def attempts = new AtomicInteger()
+        def inCommitRuns = 0
+
+        when:
+        def result = service.applyAndCommit(qtyBySku, 7L, 0, "note", ProgressListener.NONE, { inCommitRuns++ })
+
+        then:
+        1 * partitionOperations.find(7L, 0) >> []
+        (PARTITIONS + 1) * applier.apply(_, 7L, "note", ProgressListener.NONE) >> { Map<String, Long> part, Long id, String note, ProgressListener l ->
+            if (part.containsKey("SKU-1") && attempts.incrementAndGet() == 1) throw new IllegalStateException("boom")
+            applied(part)
+        }
+        PARTITIONS * partitionOperations.record(7L, 0, _ as CommittedPartition)
+        1 * partitionOperations.clear(7L)
+        attempts.get() == 2
+        inCommitRuns == 1
+        result == applied(qtyBySku)
+    }
+
+    def "a retry from different rows is refused"() {
+        given: "partition 0 was committed with other quantities for the same SKUs"
+        def part = qtyBySku.findAll { partitionOf(it.key) == 0 }.collectEntries { [it.key, it.value + 1] }
+        def stale = new CommittedPartition(0, PARTITIONS, SalesImportService.contentSha256(part), 0, 1, 1L)
+
+        when:
+        service.applyAndCommit(qtyBySku, 7L, 100, "note", ProgressListener.NONE, {})
+
+        then:
+        1 * partitionOperations.find(7L, 100) >> [stale]
+        0 * applier.apply(*_)
+        thrown(IllegalStateException)
+    }
+
+    def "a chunked import counts each SKU once, whatever the chunk size"() {
+        given:
+        configuration.chunkRows = chunkRows
+        configuration.parallelism = 1
+        def csv = "SKU-1,1\nSKU-2,2\nSKU-1,3\nBAD-1,4\nBAD-1,5\n"
+        movementSearchOperations.salesImportTotals(7L) >> new SalesImportTotals(2, 6L)
+
+        when:
+        def result = service.importRegistered(registered(csv, 0), input(csv))
+
+        then:
+        partitionOperations.find(*_) >> []
+        applier.apply(*_) >> { Map<String, Long> part, Long id, String note, ProgressListener l -> applied(part) }
+        result.status() == SalesImportStatus.SUCCESS.name()
+        result.missingSkus() == 1
+        result.processedSkus() == 2
+        result.totalQuantityRequested() == 15L
+        result.totalQuantityApplied() == 6L
+
+        where:
+        chunkRows << [1, 2, 5]
+    }
+
+    def "a resumed import reports the whole file, not only the rows after the checkpoint"() {
+        given:
+        configuration.chunkRows = 2
+        configuration.parallelism = 1
+        def csv = "SKU-1,1\nSKU-2,2\nSKU-3,3\nBAD-1,4\n"
+        def appliedSkus = []
+        movementSearchOperations.salesImportTotals(7L) >> new SalesImportTotals(3, 6L)
+
+        when:
+        def result = service.importRegistered(registered(csv, 2), input(csv))
+
+        then:
+        partitionOperations.find(*_) >> []
+        applier.apply(*_) >> { Map<String, Long> part, Long id, String note, ProgressListener l ->
+            appliedSkus.addAll(part.keySet())
+            applied(part)
+        }
+        appliedSkus == ["SKU-3", "BAD-1"]
+        result.missingSkus() == 1
+        result.processedSkus() == 3
+        result.totalQuantityRequested() == 10L
+        result.totalQuantityApplied() == 6L
+    }
+
+    private static SalesImportEntity registered(String csv, int checkpoint) {
+        def md = SalesImportService.newSha256()
+        def sha256 = SalesImportService.toHex(md.digest(csv.getBytes(StandardCharsets.UTF_8)))
+        new SalesImportEntity(7L, sha256, "sales.csv", SalesImportStatus.PROCESSING, 0, checkpoint,
+                null, null, null, checkpoint, (long) csv.length(), null, null)
+    }
+
+    private static InputStream input(String csv) {
+        new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8))
+    }
+
+    private static int partitionOf(String sku) {
+        Math.floorMod(sku.hashCode(), PARTITIONS)
+    }
+
+    private static ApplyResult applied(Map<String, Long> part) {
+        new ApplyResult(0, part.size(), (long) part.values().sum())
+    }
+}
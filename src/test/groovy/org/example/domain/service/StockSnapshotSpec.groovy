@@ -0,0 +1,175 @@
+package org.example.domain.service
+
+import io.micronaut.transaction.TransactionOperations
+import org.example.domain.Location
+import org.example.domain.event.ProductChangedEvent
+import org.example.domain.event.StockChangedEvent
+import org.example.domain.event.StockChangedEvent.StockDelta
+import org.example.persistence.entity.ProductEntity
+import org.example.persistence.entity.StockEntity
+import org.example.persistence.entity.StockId
+import org.example.persistence.repo.ProductRepository
+import org.example.persistence.repo.StockRepository
+import org.example.persistence.repo.TransactionSnapshotOperations
+import org.example.persistence.repo.TransactionSnapshotOperations.TxidSnapshot
+import spock.lang.Specification
+
+import java.sql.Connection
+
+class StockSnapshotSpec extends Specification {
+
+    // 100 and 101 committed before the read, 102 was running, 105 and later had not started
+    static final TxidSnapshot READ_AT = new TxidSnapshot(100, 105, [102] as long[])
+
+    ProductRepository productRepository = Stub()
+    StockRepository stockRepository = Stub()
+    TransactionSnapshotOperations transactionSnapshotOperations = Stub() {
+        repeatableReadSnapshot() >> READ_AT
+    }
+    TransactionOperations<Connection> transactionOperations = Stub() {
+        executeRead(_) >> { args -> args[0].apply(null) }
+    }
+
+    ReservedStock reservedStock = new ReservedStock(transactionOperations)
+
+    StockSnapshot snapshot = new StockSnapshot(
+            productRepository, stockRepository, reservedStock, transactionSnapshotOperations, transactionOperations)
+
+    /** Runs while the reload reads the stock table, like an event published concurrently. */
+    Closure duringRead = {}
+
+    def setup() {
+        productRepository.findAll() >> [product(1L, "Apple", 5)]
+        stockRepository.findAll() >> {
+            duringRead()
+            [stock(1L, Location.BACKROOM, 10)]
+        }
+    }
+
+    def "a delta the reload already read is not counted again"() {
+        given:
+        duringRead = { snapshot.onStockChanged(event(101, -3)) }
+
+        when:
+        snapshot.reload()
+
+        then:
+        backroom() == 10
+    }
+
+    def "a delta the reload did not see is applied on top of it"() {
+        given:
+        duringRead = { snapshot.onStockChanged(event(txid, 5)) }
+
+        when:
+        snapshot.reload()
+
+        then:
+        backroom() == 15
+
+        where:
+        txid << [102L, 105L, 0L]
+    }
+
+    def "a late event of a transaction the reload saw is skipped"() {
+        given:
+        snapshot.reload()
+
+        when:
+        snapshot.onStockChanged(event(99, -4))
+        snapshot.onStockChanged(event(101, -4))
+
+        then:
+        backroom() == 10
+
+        when:
+        snapshot.onStockChanged(event(150, -4))
+
+        then:
+        backroom() == 6
+    }
+
+    def "a product created during the reload is kept, with deltas to its stock"() {
+        given:
+        duringRead = {
+            snapshot.onProductChanged(new ProductChangedEvent(null, product(2L, "Banana", 0)))
+            snapshot.onStockChanged(new StockChangedEvent([new StockDelta(2L, Location.SHOPFLOOR, 4)], 110))
+        }
+
+        when:
+        snapshot.reload()
+
+        then:
+        snapshot.find(2L).get().shopfloorQty() == 4
+        snapshot.view(Optional.empty())*.name() == ["Apple", "Banana"]
+    }
+
+    def "low flags follow the deltas"() {
+        given:
+        snapshot.reload()
+
+        expect:
+        snapshot.lowView(Optional.empty()).isEmpty()
+
+        when:
+        snapshot.onStockChanged(event(120, -6))
+
+        then:
+        snapshot.lowView(Optional.empty())*.productId() == [1L]
+    }
+
+    def "reserved stock does not count towards the minimum"() {
+        given:
+        snapshot.reload()
+
+        when:
+        reservedStock.tryReserve(1L, Location.BACKROOM, 6, { 10L })
+        snapshot.reservationChanged(1L)
+
+        then:
+        snapshot.find(1L).get().reservedQty() == 6
+        snapshot.lowView(Optional.empty())*.productId() == [1L]
+
+        when:
+        reservedStock.unreserve(1L, Location.BACKROOM, 6)
+        snapshot.reservationChanged(1L)
+
+        then:
+        snapshot.lowView(Optional.empty()).isEmpty()
+    }
+
+    def "a renamed product moves within the name order and the low listing"() {
+        given:
+        snapshot.reload()
+        snapshot.onProductChanged(new ProductChangedEvent(null, product(2L, "Banana", 5)))
+        snapshot.onProductChanged(new ProductChangedEvent(null, product(3L, "Cherry", 5)))
+
+        expect:
+        snapshot.view(Optional.empty())*.name() == ["Apple", "Banana", "Cherry"]
+        snapshot.lowView(Optional.empty())*.productId() == [2L, 3L]
+
+        when:
+        snapshot.onProductChanged(new ProductChangedEvent(product(2L, "Banana", 5), product(2L, "Zucchini", 5)))
+        snapshot.onProductChanged(new ProductChangedEvent(null, product(4L, "Aardvark", 5)))
+
+        then:
+        snapshot.view(Optional.empty())*.name() == ["Aardvark", "Apple", "Cherry", "Zucchini"]
+        snapshot.lowView(Optional.empty())*.productId() == [4L, 3L, 2L]
+    }
+
+    private int backroom() {
+        snapshot.find(1L).get().backroomQty()
+    }
+
+    private static StockChangedEvent event(long txid, long delta) {
+        new StockChangedEvent([new StockDelta(1L, Location.BACKROOM, delta)], txid)
+    }
+
+    private static ProductEntity product(long id, String name, int minTotal) {
+        new ProductEntity(id, "SKU-$id".toString(), name, "pcs", minTotal, true, null, null)
+    }
+
+    private static StockEntity stock(long productId, Location location, int quantity) {
+        new StockEntity(new StockId(productId, location), quantity, null)
+    }
+}
@@ -0,0 +1,133 @@
+package org.example.domain.service
+
+import io.micronaut.transaction.TransactionOperations
+import io.micronaut.transaction.TransactionStatus
+import io.micronaut.transaction.support.TransactionSynchronization
+import org.example.config.WriteCombiningConfiguration
+import org.example.domain.Location
+import org.example.domain.event.StockChangedEvent.StockDelta
+import org.example.domain.exception.NotFoundException
+import org.example.domain.service.ProductLookupCache.ProductInfo
+import org.example.persistence.repo.MovementBulkWriter
+import org.example.persistence.repo.MovementBulkWriter.WrittenMovements
+import org.example.persistence.repo.MovementCommandOperations.MovementOutcome
+import org.example.persistence.repo.MovementCommandOperations.Status
+import org.example.persistence.repo.StockBulkOperations
+import org.example.persistence.repo.StockBulkOperations.LockedStock
+import spock.lang.Specification
+
+import java.sql.Connection
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.locks.ReentrantLock
+
+import static org.example.domain.service.ConcurrentCallers.concurrently
+
+class StockWriteCombinerSpec extends Specification {
+
+    static final int CALLERS = 64
+    static final long TRANSACTION_ID = 900
+
+    /** The stock row: one lock, held for a whole transaction like the row lock. */
+    ReentrantLock rowLock = new ReentrantLock()
+    long quantity = 0
+    AtomicInteger transactions = new AtomicInteger()
+    AtomicLong nextMovementId = new AtomicLong(1000)
+
+    StockBulkOperations stockBulkOperations = Stub() {
+        lockForUpdate(_) >> { [new LockedStock(1L, Location.SHOPFLOOR, quantity)] }
+        addQuantities(_, _, _) >> { long[] ids, Location[] locations, long[] deltas -> quantity += deltas[0] }
+    }
+    MovementBulkWriter movementBulkWriter = Stub() {
+        writeWithIds(_) >> { List movements ->
+            new WrittenMovements(movements.collect { nextMovementId.incrementAndGet() } as long[], TRANSACTION_ID)
+        }
+    }
+    ProductLookupCache productLookupCache = Stub() {
+        require(1L) >> new ProductInfo(1L, true, 0)
+        require(2L) >> { throw new NotFoundException("Product not found: 2") }
+    }
+    StockEventPublisher stockEventPublisher = Mock()
+
+    /** Synchronizations registered by the transaction running on each thread. */
+    ThreadLocal<List<TransactionSynchronization>> synchronizations = new ThreadLocal<>()
+    TransactionStatus<Connection> status = Stub() {
+        registerSynchronization(_) >> { TransactionSynchronization sync -> synchronizations.get() << sync }
+    }
+    TransactionOperations<Connection> transactionOperations = Stub() {
+        findTransactionStatus() >> { synchronizations.get() == null ? Optional.empty() : Optional.of(status) }
+        executeWrite(_) >> { args ->
+            rowLock.lock()
+            synchronizations.set([])
+            try {
+                transactions.incrementAndGet()
+                args[0].apply(status)
+            } finally {
+                synchronizations.get().each { it.afterCompletion(TransactionSynchronization.Status.COMMITTED) }
+                synchronizations.remove()
+                rowLock.unlock()
+            }
+        }
+    }
+    WriteCombiningConfiguration configuration = new WriteCombiningConfiguration(enabled: true)
+    ReservedStock reservedStock = new ReservedStock(transactionOperations)
+
+    StockWriteCombiner combiner = new StockWriteCombiner(
+            stockBulkOperations, movementBulkWriter, reservedStock, productLookupCache, stockEventPublisher,
+            transactionOperations, configuration)
+
+    def "a lone caller gets the id of its movement"() {
+        when:
+        def outcome = combiner.submit(1L, Location.SHOPFLOOR, 3, 0, "receipt")
+
+        then:
+        outcome == new MovementOutcome(Status.APPLIED, 1001L, TRANSACTION_ID)
+        quantity == 3
+        transactions.get() == 1
+        1 * stockEventPublisher.stockChanged([new StockDelta(1L, Location.SHOPFLOOR, 3)], TRANSACTION_ID)
+    }
+
+    def "an issue beyond the locked quantity is refused"() {
+        given:
+        quantity = 5
+
+        expect:
+        combiner.submit(1L, Location.SHOPFLOOR, -4, 0, null).status() == Status.APPLIED
+        combiner.submit(1L, Location.SHOPFLOOR, -4, 0, null).status() == Status.INSUFFICIENT_STOCK
+        quantity == 1
+    }
+
+    def "an issue leaves reserved stock in place, confirming the reservation takes it"() {
+        given:
+        quantity = 5
+        reservedStock.tryReserve(1L, Location.SHOPFLOOR, 3, { quantity })
+
+        expect:
+        combiner.submit(1L, Location.SHOPFLOOR, -3, 0, null).status() == Status.INSUFFICIENT_STOCK
+        combiner.submit(1L, Location.SHOPFLOOR, -2, 0, null).status() == Status.APPLIED
+        combiner.submit(1L, Location.SHOPFLOOR, -3, 3, "reservation").status() == Status.APPLIED
+        quantity == 0
+    }
+
+    def "an unknown product is reported without a transaction"() {
+        expect:
+        combiner.submit(2L, Location.SHOPFLOOR, 1, 0, null) == MovementOutcome.rejected(Status.PRODUCT_NOT_FOUND)
+        transactions.get() == 0
+    }
+
+    def "concurrent callers on one row each get their own outcome and never overdraw it"() {
+        given:
+        quantity = 30
+
+        when:
+        def outcomes = concurrently(CALLERS) { combiner.submit(1L, Location.SHOPFLOOR, -1, 0, null) }
+
+        then:
+        outcomes.size() == CALLERS
+        outcomes.count { it.status() == Status.APPLIED } == 30
+        outcomes.count { it.status() == Status.INSUFFICIENT_STOCK } == CALLERS - 30
+        outcomes.findAll { it.status() == Status.APPLIED }*.movementId().toSet().size() == 30
+        outcomes.findAll { it.status() == Status.INSUFFICIENT_STOCK }.every { it.movementId() == null }
+        quantity == 0
+    }
+}
@@ -0,0 +1,70 @@
+package org.example.inventory
+
+import org.example.domain.Location
+import org.example.domain.MovementType
+import org.example.domain.event.StockChangedEvent.StockDelta
+import org.example.domain.service.ProductLookupCache
+import org.example.domain.service.StockEventPublisher
+import org.example.persistence.repo.MovementBulkWriter
+import org.example.persistence.repo.StockBulkOperations
+import org.example.persistence.repo.StockBulkOperations.CountAdjustment
+import spock.lang.Specification
+
+class InventoryServiceSpec extends Specification {
+
+    ProductLookupCache productLookupCache = Stub() {
+        idsBySku(_) >> { List<String> skus -> skus.findAll { it.startsWith("SKU-") }.collectEntries { [it, 1L] } }
+    }
+    StockBulkOperations stockBulkOperations = Mock()
+    MovementBulkWriter movementBulkWriter = Mock()
+    StockEventPublisher stockEventPublisher = Mock()
+
+    InventoryService service = new InventoryService(
+            productLookupCache, stockBulkOperations, movementBulkWriter, stockEventPublisher)
+
+    def "lines for the same position are added up"() {
+        when:
+        def result = service.performInventory(request(
+                new InventoryLine("SKU-1", Location.SHOPFLOOR, 3),
+                new InventoryLine(" SKU-1 ", Location.SHOPFLOOR, 4)))
+
+        then:
+        1 * stockBulkOperations.setCounted([1L] as long[], [Location.SHOPFLOOR] as Location[], [7L] as long[]) >> []
+        result.totalPositions() == 1
+    }
+
+    def "an unknown SKU rejects the whole count"() {
+        when:
+        service.performInventory(request(
+                new InventoryLine("SKU-1", Location.SHOPFLOOR, 3),
+                new InventoryLine("nope", Location.BACKROOM, 1)))
+
+        then:
+        def ex = thrown(IllegalArgumentException)
+        ex.message == "Unknown SKUs in inventory (1): nope"
+        0 * stockBulkOperations._
+        0 * movementBulkWriter._
+        0 * stockEventPublisher._
+    }
+
+    def "only positions whose stock changed get a movement"() {
+        when:
+        def result = service.performInventory(request(
+                new InventoryLine("SKU-1", Location.SHOPFLOOR, 5),
+                new InventoryLine("SKU-1", Location.BACKROOM, 2)))
+
+        then: "the backroom already held 2"
+        1 * stockBulkOperations.setCounted(*_) >> [new CountAdjustment(1L, Location.SHOPFLOOR, 8, 5)]
+        1 * movementBulkWriter.write({
+            it*.type() == [MovementType.ADJUSTMENT]
+                    && it*.fromLocation() == [Location.SHOPFLOOR]
+                    && it*.quantity() == [3]
+        })
+        1 * stockEventPublisher.stockChanged([new StockDelta(1L, Location.SHOPFLOOR, -3)])
+        result == new InventoryResultView(2, 1, 0, 3)
+    }
+
+    private static PerformInventoryRequest request(InventoryLine... lines) {
+        new PerformInventoryRequest(lines.toList(), null, null)
+    }
+}